@@ -1,5 +1,16 @@
 package com.example.account.aop;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Collections;
+import java.util.Set;
+
 public interface AccountLockIdInterface {
     String getAccountNumber();
+
+    // lock을 잡아야 하는 모든 계좌 (기본은 요청 계좌 하나)
+    @JsonIgnore
+    default Set<String> getAccountNumbers() {
+        return Collections.singleton(getAccountNumber());
+    }
 }
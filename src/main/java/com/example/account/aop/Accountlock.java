@@ -1,5 +1,7 @@
 package com.example.account.aop;
 
+import com.example.account.type.TransactionType;
+
 import java.lang.annotation.*;
 
 @Target(ElementType.METHOD)
@@ -8,4 +10,7 @@ import java.lang.annotation.*;
 @Inherited
 public @interface Accountlock {
     long tryLockTime() default 500L;
+
+    // 거래 종류별로 동시성 제어 방식(account.transaction.concurrency-mode.*)을 고른다.
+    TransactionType transactionType() default TransactionType.USE;
 }
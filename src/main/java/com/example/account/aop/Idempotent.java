@@ -0,0 +1,14 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+/**
+ * Idempotency-Key 헤더가 있으면 같은 키의 두 번째 요청부터는 저장된 응답을 돌려준다.
+ * (lock, DB를 거치지 않음)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Idempotent {
+}
@@ -0,0 +1,14 @@
+package com.example.account.aop;
+
+import com.example.account.type.TransactionType;
+
+import java.lang.annotation.*;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface RetryOnConflict {
+    // 거래 종류별 동시성 제어 방식을 보고 재시도 여부를 정한다.
+    TransactionType transactionType() default TransactionType.USE;
+}
@@ -0,0 +1,55 @@
+package com.example.account.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate 2차 캐시 (JCache + Caffeine)
+ * region마다 크기와 TTL을 정해서 만들고, Hibernate가 이 CacheManager를 쓰게 한다.
+ * (hit/miss 통계: hibernate.second.level.cache.requests, hibernate.cache.query.requests)
+ */
+@Configuration
+public class HibernateCacheConfiguration {
+    public static final String ACCOUNT_USER_REGION = "accountUser";
+    public static final String ACCOUNT_USER_QUERY_REGION = "accountUserQuery";
+    // Hibernate 기본 region
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${account.entity-cache.max-size:10000}") long maxSize,
+            @Value("${account.entity-cache.ttl:600000}") long ttl) {
+        // 테스트처럼 context가 여러 개여도 캐시를 같이 쓰지 않게 context마다 따로 만든다.
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(getClass().getName() + "." + System.identityHashCode(this)),
+                        getClass().getClassLoader());
+
+        CaffeineConfiguration<Object, Object> bounded = new CaffeineConfiguration<>();
+        bounded.setMaximumSize(OptionalLong.of(maxSize));
+        bounded.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttl)));
+        bounded.setStatisticsEnabled(true);
+        cacheManager.createCache(ACCOUNT_USER_REGION, new CaffeineConfiguration<>(bounded));
+        cacheManager.createCache(ACCOUNT_USER_QUERY_REGION, new CaffeineConfiguration<>(bounded));
+        cacheManager.createCache(QUERY_RESULTS_REGION, new CaffeineConfiguration<>(bounded));
+        // 테이블별 마지막 변경 시각, 지워지면 query cache가 오래된 결과를 줄 수 있어서 제한하지 않는다.
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.account.config;
+
+import com.example.account.domain.PooledSequenceGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 엔티티 id 시퀀스 설정(account.id)을 PooledSequenceGenerator에 넘긴다.
+ */
+@Configuration
+public class HibernateIdConfiguration {
+    @Bean
+    public HibernatePropertiesCustomizer hibernateIdCustomizer(
+            @Value("${account.id.allocation-size:50}") int allocationSize,
+            @Value("${account.id.optimizer:pooled-lo}") String optimizer) {
+        return properties -> {
+            properties.put(PooledSequenceGenerator.ALLOCATION_SIZE, allocationSize);
+            properties.put(PooledSequenceGenerator.OPTIMIZER, optimizer);
+        };
+    }
+}
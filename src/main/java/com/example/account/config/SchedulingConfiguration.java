@@ -0,0 +1,9 @@
+package com.example.account.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling // RESERVATION 카운터 reconcile 등 주기 작업
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,48 @@
+package com.example.account.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class TransactionExecutorConfig {
+    @Value("${account.transaction.executor.core-size:8}")
+    private int coreSize;
+
+    @Value("${account.transaction.executor.max-size:32}")
+    private int maxSize;
+
+    @Value("${account.transaction.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // lock 획득 후 비동기 거래를 실행하는 스레드풀 (큐가 가득 차면 바로 거절)
+    @Bean
+    public ThreadPoolTaskExecutor transactionExecutor(){
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("transaction-");
+        return executor;
+    }
+
+    @Value("${account.reservation.writer.threads:4}")
+    private int reservationWriterThreads;
+
+    @Value("${account.reservation.writer.queue-capacity:10000}")
+    private int reservationWriterQueueCapacity;
+
+    // RESERVATION 모드에서 redis로 차감한 거래를 DB에 반영하는 스레드풀 (종료 시 남은 작업을 끝까지 반영)
+    @Bean
+    public ThreadPoolTaskExecutor reservationWriteExecutor(){
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(reservationWriterThreads);
+        executor.setMaxPoolSize(reservationWriterThreads);
+        executor.setQueueCapacity(reservationWriterQueueCapacity);
+        executor.setThreadNamePrefix("reservation-writer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.account.controller;
 
-import com.example.account.domain.Account;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.AccountInfo;
+import com.example.account.dto.AccountView;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.service.AccountService;
@@ -49,8 +50,13 @@ public class AccountController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("/account/{accountNumber}/balance")
+    public AccountBalance getBalance(@PathVariable String accountNumber){
+        return accountService.getBalance(accountNumber);
+    }
+
     @GetMapping("/account/{id}")
-    public Account getAccount(@PathVariable Long id){
+    public AccountView getAccount(@PathVariable Long id){
         return accountService.getAccount(id);
     }
 }
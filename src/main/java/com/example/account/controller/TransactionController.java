@@ -1,29 +1,45 @@
 package com.example.account.controller;
 
 import com.example.account.aop.Accountlock;
+import com.example.account.aop.Idempotent;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionHistoryService;
 import com.example.account.service.TransactionService;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 잔액 관련 컨트롤러
  * 1. 잔액 사용
  * 2. 잔액 사용 취소
  * 3. 거래 확인
+ * 4. 일괄 이체
+ * 5. 계좌별 거래 내역
+ * (/async 엔드포인트는 같은 거래를 비동기 실행 모드로 처리)
+ * (Idempotency-Key 헤더가 있으면 같은 키로 다시 온 요청은 저장된 응답으로 응답)
+ * (실패한 거래는 FailedTransactionRecorder 큐에 넣고 바로 에러 응답)
  */
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class TransactionController {
     private  final TransactionService transactionService;
+    private final FailedTransactionRecorder failedTransactionRecorder;
+    private final TransactionHistoryService transactionHistoryService;
     @PostMapping("/transaction/use")
+    @Idempotent
     @Accountlock
     public UseBalance.Response useBalance(
             @Valid @RequestBody UseBalance.Request request
@@ -36,7 +52,7 @@ public class TransactionController {
             ));
         }catch(AccountException | InterruptedException e){
             log.error("Failed to use balance.");
-            transactionService.saveFaileUseTransaction(
+            failedTransactionRecorder.record(TransactionType.USE,
                     request.getAccountNumber(),
                     request.getAmount()
             );
@@ -46,7 +62,8 @@ public class TransactionController {
     }
 
     @PostMapping("/transaction/cancel")
-    @Accountlock
+    @Idempotent
+    @Accountlock(transactionType = TransactionType.CANCEL)
     public CancelBalance.Response cancelBalance(
             @Valid @RequestBody CancelBalance.Request request
     ){
@@ -56,22 +73,92 @@ public class TransactionController {
             ));
         }catch(AccountException e){
             log.error("Failed to use balance.");
-            transactionService.saveFaileCancelTransaction(
+            failedTransactionRecorder.record(TransactionType.CANCEL,
+                    request.getAccountNumber(),
+                    request.getAmount()
+            );
+            throw e;
+        }
+
+    }
+    /**
+     * 비동기 실행 모드
+     * 요청 스레드는 lock을 기다리지 않고 바로 반환되고,
+     * lock 획득 후 transactionExecutor에서 거래가 실행된다.
+     * (동기 /transaction/use의 5초 sleep은 하지 않는다. executor 스레드를 붙잡지 않게)
+     */
+    @PostMapping("/transaction/use/async")
+    @Accountlock
+    public CompletableFuture<UseBalance.Response> useBalanceAsync(
+            @Valid @RequestBody UseBalance.Request request
+    ){
+        try{
+            return CompletableFuture.completedFuture(UseBalance.Response.from(transactionService.useBalance(
+                    request.getUserId(), request.getAccountNumber(), request.getAmount(),
+                    request.getToAccountNumber(), request.getBank(),request.getTransactionMessage()
+            )));
+        }catch(AccountException e){
+            log.error("Failed to use balance.");
+            failedTransactionRecorder.record(TransactionType.USE,
+                    request.getAccountNumber(),
+                    request.getAmount()
+            );
+            throw e;
+        }
+    }
+
+    @PostMapping("/transaction/cancel/async")
+    @Accountlock(transactionType = TransactionType.CANCEL)
+    public CompletableFuture<CancelBalance.Response> cancelBalanceAsync(
+            @Valid @RequestBody CancelBalance.Request request
+    ){
+        try{
+            return CompletableFuture.completedFuture(CancelBalance.Response.from(transactionService.cancelBalance(
+                    request.getTransactionId(), request.getAccountNumber(), request.getAmount()
+            )));
+        }catch(AccountException e){
+            log.error("Failed to cancel balance.");
+            failedTransactionRecorder.record(TransactionType.CANCEL,
                     request.getAccountNumber(),
                     request.getAmount()
             );
             throw e;
         }
+    }
 
+    /**
+     * 일괄 이체
+     * 모든 항목의 계좌를 계좌번호 순서대로 lock 하고, 한 트랜잭션으로 반영한 뒤 항목별 결과를 돌려준다.
+     */
+    @PostMapping("/transaction/use/batch")
+    @Accountlock(tryLockTime = 3000L)
+    public UseBalanceBatch.Response useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request
+    ){
+        return UseBalanceBatch.Response.from(request.getMode(),
+                transactionService.useBalanceBatch(request.getItems(), request.getMode()));
     }
+
     @GetMapping("/transaction/{transactionId}")
     public QueryTransactionResponse queryTransaction(
             @PathVariable String transactionId
     ){
-       return QueryTransactionResponse.from(
-               transactionService.queryTransaction(transactionId)
-        );
+       return transactionService.queryTransaction(transactionId);
     }
 
-
+    /**
+     * 계좌별 거래 내역 (최근 거래부터)
+     * 다음 페이지는 응답의 nextCursor를 cursor로 넘긴다.
+     */
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory getTransactionHistory(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) TransactionResultType result,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ){
+        return transactionHistoryService.getTransactionHistory(
+                accountNumber, type, result, cursor, size);
+    }
 }
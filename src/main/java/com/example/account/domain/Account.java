@@ -17,8 +17,14 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        // findByAccountNumber, findByAccountNumberAndBank
+        @Index(name = "uk_account_account_number", columnList = "account_number", unique = true),
+        // findByAccountUser, findAccountDtosByUserId
+        @Index(name = "idx_account_account_user", columnList = "account_user_id")
+})
 public class Account extends BaseEntity{
-    @ManyToOne // 1:n
+    @ManyToOne(fetch = FetchType.LAZY) // 1:n, 소유주가 필요한 조회만 읽는다.
     private AccountUser accountUser;
     private String accountNumber;
     @Enumerated(EnumType.STRING)
@@ -29,6 +35,10 @@ public class Account extends BaseEntity{
     private AccountStatus accountStatus;
     private Long balance;
 
+    // OPTIMISTIC 모드에서 잔액 갱신 충돌 감지
+    @Version
+    private Long version;
+
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
@@ -0,0 +1,22 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 계좌번호 순번 (블록 단위로 예약)
+ * nextValue 부터 아직 아무 노드에도 나눠주지 않은 순번이다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class AccountNumberSequence {
+    @Id
+    private String name;
+    private Long nextValue;
+}
@@ -1,8 +1,14 @@
 package com.example.account.domain;
 
+import com.example.account.config.HibernateCacheConfiguration;
 import com.example.account.type.Bank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import java.util.List;
 
@@ -12,6 +18,30 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Entity
+// 거의 바뀌지 않고 요청마다 id로 조회하므로 2차 캐시에 둔다.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfiguration.ACCOUNT_USER_REGION)
 public class AccountUser extends BaseEntity{
     private String name;
+
+    // 보유 계좌 수 (IN_USE), findByIdForUpdate로 잠근 뒤에만 바꾼다. (AccountUserRespository)
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer accountCount = 0;
+
+    // 계좌 수가 max보다 작을 때만 늘린다.
+    public boolean increaseAccountCount(int max) {
+        if (accountCount >= max) {
+            return false;
+        }
+        accountCount++;
+        return true;
+    }
+
+    public void decreaseAccountCount() {
+        if (accountCount > 0) {
+            accountCount--;
+        }
+    }
 }
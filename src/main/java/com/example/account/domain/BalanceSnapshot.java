@@ -0,0 +1,27 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * 계좌별 잔액 스냅샷
+ * postedBefore 전에 기록된 원장 기록을 모두 합한 잔액이다. 잔액 = balance + postedBefore 부터의 기록
+ * postingCount: 지금까지 합친 기록 수, 미뤄 둔 입금도 postedBefore 전의 것은 Account.balance에 더했다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class BalanceSnapshot {
+    @Id
+    private Long accountId;
+    private Long balance;
+    private LocalDateTime postedBefore;
+    private Long postingCount;
+    private LocalDateTime snapshotAt;
+}
@@ -0,0 +1,37 @@
+package com.example.account.domain;
+
+import com.example.account.type.PostingType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 원장 기록 (추가만 하고 바꾸지 않는다)
+ * 이체 한 건 = 보내는 계좌 DEBIT(-) + 받는 계좌 CREDIT(+), 합은 항상 0
+ * 순서는 insert 때 시퀀스에서 받은 id, 스냅샷에 합쳤는지는 BalanceSnapshot.postedBefore로 정한다.
+ * applied: 기록할 때 Account.balance에 반영했는지 (받는 쪽 입금을 미뤄 둔 경우 false, 스냅샷이 더한다)
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        // 잔액 조회(스냅샷 뒤 기록), 계좌별로 스냅샷에 합칠 기록
+        @Index(name = "idx_ledger_posting_account_posted_at", columnList = "account_id, posted_at"),
+        // 스냅샷에 합칠 계좌 찾기
+        @Index(name = "idx_ledger_posting_posted_at", columnList = "posted_at, account_id"),
+        // journal 재시작 때 커밋 여부 확인
+        @Index(name = "idx_ledger_posting_transaction_id", columnList = "transaction_id")
+})
+public class LedgerPosting extends BaseEntity {
+    // 계좌를 읽지 않고 쓰기만 하므로 연관관계 대신 id
+    private Long accountId;
+    private String transactionId;
+    @Enumerated(EnumType.STRING)
+    private PostingType postingType;
+    private Long amount;
+    private Boolean applied;
+    private LocalDateTime postedAt;
+}
@@ -0,0 +1,43 @@
+package com.example.account.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 엔티티 id 시퀀스 (엔티티마다 따로, 예: account_seq)
+ * insert마다 시퀀스를 읽지 않고 allocation-size 만큼 한 번에 받아서 메모리에서 나눠준다.
+ * - pooled-lo: 시퀀스 값이 블록의 시작 (기본)
+ * - pooled: 시퀀스 값이 블록의 끝
+ * 설정은 hibernate 속성 account.id.allocation-size / account.id.optimizer 로 받는다. (HibernateIdConfiguration)
+ * 서버가 재시작하면 받아 둔 블록의 남은 id는 건너뛴다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String NAME = "pooledSequence";
+    public static final String ALLOCATION_SIZE = "account.id.allocation-size";
+    public static final String OPTIMIZER = "account.id.optimizer";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+    public static final String DEFAULT_OPTIMIZER = "pooled-lo";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configuration = serviceRegistry.getService(ConfigurationService.class);
+        int allocationSize = configuration.getSetting(
+                ALLOCATION_SIZE, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+        if (allocationSize < 1) {
+            throw new MappingException(ALLOCATION_SIZE + " must be positive: " + allocationSize);
+        }
+        params.put(CONFIG_PREFER_SEQUENCE_PER_ENTITY, "true");
+        params.put(INCREMENT_PARAM, String.valueOf(allocationSize));
+        // 1이면 insert마다 시퀀스를 읽는다. (optimizer 없음)
+        params.put(OPT_PARAM, allocationSize > 1
+                ? configuration.getSetting(OPTIMIZER, StandardConverters.STRING, DEFAULT_OPTIMIZER)
+                : "none");
+        super.configure(type, params, serviceRegistry);
+    }
+}
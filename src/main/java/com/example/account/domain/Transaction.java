@@ -14,13 +14,19 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        // findByTransactionId
+        @Index(name = "uk_transaction_transaction_id", columnList = "transaction_id", unique = true),
+        // 계좌별 거래 내역 keyset 페이지
+        @Index(name = "idx_transaction_account_transacted_at", columnList = "account_id, transacted_at, id")
+})
 public class Transaction extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private String toAccount;
@@ -0,0 +1,14 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+// GET /account/{accountNumber}/balance (원장 잔액)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalance {
+    private String accountNumber;
+    private Long balance;
+}
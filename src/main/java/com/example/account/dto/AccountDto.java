@@ -22,6 +22,18 @@ public class AccountDto {
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
+    // 읽기 모델 -> dto
+    public static AccountDto fromView(AccountView view){
+        return AccountDto.builder()
+                .userId(view.getUserId())
+                .accountNumber(view.getAccountNumber())
+                .bank(view.getBank())
+                .balance(view.getBalance())
+                .registeredAt(view.getRegisteredAt())
+                .unRegisteredAt(view.getUnRegisteredAt())
+                .build();
+    }
+
     // entity -> dto
     public static AccountDto fromEntity(Account account){
         return AccountDto.builder()
@@ -0,0 +1,18 @@
+package com.example.account.dto;
+
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import lombok.*;
+
+// 캐시에 두는 계좌 정보 (잔액처럼 자주 바뀌는 값은 넣지 않는다)
+@Getter
+@AllArgsConstructor
+@Builder
+public class AccountMetadata {
+    private final Long id;
+    private final String accountNumber;
+    private final Long userId;
+    private final String userName;
+    private final Bank bank;
+    private final AccountStatus accountStatus;
+}
@@ -0,0 +1,45 @@
+package com.example.account.dto;
+
+import com.example.account.domain.Account;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// 읽기 모델의 계좌 (GET /account/{id} 응답, 노드 사이에는 redis topic으로 보낸다)
+@Getter
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class AccountView implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final Long userId;
+    private final String accountNumber;
+    private final Bank bank;
+    private final AccountStatus accountStatus;
+    private final Long balance;
+    // 계좌 row의 version, 늦게 도착한 변경이 새 값을 덮지 않게 비교한다.
+    @JsonIgnore
+    private final Long version;
+    private final LocalDateTime registeredAt;
+    private final LocalDateTime unRegisteredAt;
+
+    // entity -> view
+    public static AccountView fromEntity(Account account){
+        return AccountView.builder()
+                .id(account.getId())
+                .userId(account.getAccountUser().getId())
+                .accountNumber(account.getAccountNumber())
+                .bank(account.getBank())
+                .accountStatus(account.getAccountStatus())
+                .balance(account.getBalance())
+                .version(account.getVersion())
+                .registeredAt(account.getRegisteredAt())
+                .unRegisteredAt(account.getUnRegisteredAt())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * {
+ *     "accountNumber":"1000000000",
+ *     "transactions":[
+ *         {"transactionId":"...", "transactionType":"USE", "transactionResultType":"S",
+ *          "amount":1000, "toAccount":"1000000001", "balanceSnapshot":9000,
+ *          "transactedAt":"2024-01-01T00:00:00"}
+ *     ],
+ *     "nextCursor":"..."   // 마지막 페이지면 null
+ * }
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionHistory {
+    private String accountNumber;
+    private List<TransactionHistoryItem> transactions;
+    private String nextCursor;
+}
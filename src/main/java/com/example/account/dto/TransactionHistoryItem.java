@@ -0,0 +1,26 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// 거래 내역 한 줄 (엔티티 대신 필요한 컬럼만 조회)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionHistoryItem {
+    // 다음 페이지 cursor에만 쓴다.
+    @JsonIgnore
+    private Long id;
+    private String transactionId;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResultType;
+    private Long amount;
+    private String toAccount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+}
@@ -7,6 +7,8 @@ import lombok.*;
 
 import javax.validation.constraints.*;
 import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.TreeSet;
 
 
 public class UseBalance {
@@ -40,6 +42,17 @@ public class UseBalance {
         private String toAccountNumber;
         private String bank;
         private String transactionMessage;
+
+        // 보내는 계좌와 받는 계좌 모두 lock
+        @Override
+        public Set<String> getAccountNumbers() {
+            Set<String> accountNumbers = new TreeSet<>();
+            accountNumbers.add(accountNumber);
+            if (toAccountNumber != null) {
+                accountNumbers.add(toAccountNumber);
+            }
+            return accountNumbers;
+        }
     }
 
     /**
@@ -0,0 +1,127 @@
+package com.example.account.dto;
+
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.type.BatchMode;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+
+public class UseBalanceBatch {
+    /**
+     * {
+     *     "mode":"ALL_OR_NOTHING",
+     *     "items":[
+     *         {"userId":1, "accountNumber":"1000000000", "amount":1000,
+     *          "toAccountNumber":"1000000001", "bank":"KB", "transactionMessage":"급여"}
+     *     ]
+     * }
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Request implements AccountLockIdInterface {
+        @NotNull
+        private BatchMode mode = BatchMode.ALL_OR_NOTHING;
+
+        // lock은 계좌마다 하나씩 순서대로 얻는다. (항목당 최대 2번의 redis 왕복)
+        // tryLockTime 안에 모두 얻을 수 있게 항목 수를 제한한다.
+        @Valid
+        @NotEmpty
+        @Size(max = 100)
+        private List<UseBalance.Request> items;
+
+        @Override
+        public String getAccountNumber() {
+            return items.get(0).getAccountNumber();
+        }
+
+        // 모든 항목의 보내는 계좌와 받는 계좌를 합쳐서 계좌번호 순서대로 lock
+        @Override
+        public Set<String> getAccountNumbers() {
+            Set<String> accountNumbers = new TreeSet<>();
+            for (UseBalance.Request item : items) {
+                accountNumbers.addAll(item.getAccountNumbers());
+            }
+            return accountNumbers;
+        }
+    }
+
+    /**
+     * {
+     *     "mode":"BEST_EFFORT",
+     *     "successCount":1,
+     *     "failureCount":1,
+     *     "items":[
+     *         {"accountNumber":"1000000000", "transactionResultType":"S", "transactionId":"...", ...},
+     *         {"accountNumber":"1000000002", "transactionResultType":"F", "errorCode":"AMOUNT_EXCEED_BALANCE", ...}
+     *     ]
+     * }
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private BatchMode mode;
+        private int successCount;
+        private int failureCount;
+        private List<Item> items;
+
+        public static Response from(BatchMode mode, List<TransactionDto> transactionDtos) {
+            List<Item> items = transactionDtos.stream()
+                    .map(Item::from)
+                    .collect(Collectors.toList());
+            int successCount = (int) items.stream()
+                    .filter(item -> item.getTransactionResultType() == TransactionResultType.S)
+                    .count();
+            return Response.builder()
+                    .mode(mode)
+                    .successCount(successCount)
+                    .failureCount(items.size() - successCount)
+                    .items(items)
+                    .build();
+        }
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        private String accountNumber;
+        private String toAccountNumber;
+        private TransactionResultType transactionResultType;
+        private String transactionId;
+        private Long amount;
+        private Long balanceSnapshot;
+        private ErrorCode errorCode;
+        private LocalDateTime transactedAt;
+
+        public static Item from(TransactionDto transactionDto) {
+            return Item.builder()
+                    .accountNumber(transactionDto.getAccountNumber())
+                    .toAccountNumber(transactionDto.getToAccount())
+                    .transactionResultType(transactionDto.getTransactionResultType())
+                    .transactionId(transactionDto.getTransactionId())
+                    .amount(transactionDto.getAmount())
+                    .balanceSnapshot(transactionDto.getBalanceSnapshot())
+                    .errorCode(transactionDto.getErrorCode())
+                    .transactedAt(transactionDto.getTransactedAt())
+                    .build();
+        }
+    }
+}
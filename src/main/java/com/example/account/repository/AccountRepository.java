@@ -2,12 +2,26 @@ package com.example.account.repository;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.AccountView;
 import com.example.account.type.Bank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 // spring에서 jpa를 쓰기쉽게 해주도록 만들어진 인터페이스
 @Repository // bean에 등록
@@ -16,10 +30,71 @@ public interface AccountRepository extends JpaRepository<Account,Long> {
     Optional<Account> findFirstByOrderByIdDesc(); // 맨 첫번째 값, id 내림차순으로
 
     Optional<Account> findByAccountNumberAndBank(String accountNumber, Bank bank);
-    Integer countByAccountUser (AccountUser accountUser);
 
     Optional<Account> findByAccountNumber(String accountNumber);
 
+    // 읽기 모델 (사용자 엔티티를 읽지 않음)
+    String VIEW_SELECT = "select new com.example.account.dto.AccountView(" +
+            "a.id, a.accountUser.id, a.accountNumber, a.bank, a.accountStatus, a.balance, a.version, " +
+            "a.registeredAt, a.unRegisteredAt) from Account a ";
+
+    @Query(VIEW_SELECT + "where a.id = :id")
+    Optional<AccountView> findViewById(@Param("id") Long id);
+
+    // 실패 거래 기록: flush 한 번에 계좌 id와 잔액을 같이 읽는다.
+    @Query(VIEW_SELECT + "where a.accountNumber in :accountNumbers")
+    List<AccountView> findViewsByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    // 읽기 모델을 채울 때 전체를 메모리에 올리지 않고 읽는다. (트랜잭션 안에서 쓰고 닫을 것)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(VIEW_SELECT + "order by a.id")
+    Stream<AccountView> streamAllViews();
+
+    // bulk update로 바뀐 계좌를 읽기 모델에 다시 읽어 온다.
+    @Query(VIEW_SELECT + "where a.id in :ids")
+    List<AccountView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
     List<Account> findByAccountUser (AccountUser accountUser);
 
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    // 사용자의 계좌 목록: 응답에 필요한 컬럼만 읽는다. (사용자 엔티티를 읽지 않음)
+    @Query("select new com.example.account.dto.AccountDto(" +
+            "a.accountUser.id, a.accountNumber, a.bank, a.balance, a.registeredAt, a.unRegisteredAt) " +
+            "from Account a where a.accountUser.id = :userId order by a.id")
+    List<AccountDto> findAccountDtosByUserId(@Param("userId") Long userId);
+
+    // 계좌 정보 캐시: 계좌와 소유주를 한 쿼리로
+    @Query("select new com.example.account.dto.AccountMetadata(" +
+            "a.id, a.accountNumber, u.id, u.name, a.bank, a.accountStatus) " +
+            "from Account a join a.accountUser u where a.accountNumber = :accountNumber")
+    Optional<AccountMetadata> findMetadataByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    // 계좌번호 필터를 채울 때 전체를 메모리에 올리지 않고 읽는다. (트랜잭션 안에서 쓰고 닫을 것)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.accountNumber from Account a")
+    Stream<String> streamAllAccountNumbers();
+
+    // DB_LOCK 모드: SELECT ... FOR UPDATE
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    // 이체는 두 계좌를 계좌번호 순서로 한 번에 잠가서 deadlock을 피한다.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers order by a.accountNumber")
+    List<Account> findAllByAccountNumberInForUpdate(
+            @Param("accountNumbers") Collection<String> accountNumbers);
+
+    // RESERVATION 모드: 잔액이 충분할 때만 출금 (read-modify-write 없이 한 번의 update)
+    @Modifying
+    @Query("update Account a set a.balance = a.balance - :amount, a.version = a.version + 1 " +
+            "where a.id = :id and a.balance >= :amount")
+    int withdrawIfSufficient(@Param("id") Long id, @Param("amount") Long amount);
+
+    @Modifying
+    @Query("update Account a set a.balance = a.balance + :amount, a.version = a.version + 1 " +
+            "where a.id = :id")
+    int deposit(@Param("id") Long id, @Param("amount") Long amount);
+
 }
@@ -1,13 +1,43 @@
 package com.example.account.repository;
 
+import com.example.account.config.HibernateCacheConfiguration;
 import com.example.account.domain.AccountUser;
 import com.example.account.type.Bank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AccountUserRespository extends JpaRepository<AccountUser,Long> {
+    // findById는 2차 캐시에서, 일괄 이체의 사용자 조회는 query cache에서 읽는다.
+    @Override
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = HibernateCacheConfiguration.ACCOUNT_USER_QUERY_REGION)
+    })
+    List<AccountUser> findAllById(Iterable<Long> ids);
+
+    // 읽기 모델: 계좌가 없는 사용자도 알아야 USER_NOT_FOUND와 구분한다.
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id from AccountUser u")
+    Stream<Long> streamAllIds();
+
+    // 계좌 수를 바꿀 때: 사용자 row를 커밋까지 잠그고 DB에서 읽는다. (SELECT ... FOR UPDATE)
+    // bulk update는 2차 캐시의 사용자 region 전체를 비우므로 엔티티를 바꿔서 그 사용자만 갱신한다.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from AccountUser u where u.id = :id")
+    Optional<AccountUser> findByIdForUpdate(@Param("id") Long id);
 }
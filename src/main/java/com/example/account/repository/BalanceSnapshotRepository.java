@@ -0,0 +1,19 @@
+package com.example.account.repository;
+
+import com.example.account.domain.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    // 여러 노드가 같은 계좌를 동시에 합치지 않게 한다.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from BalanceSnapshot s where s.accountId = :accountId")
+    Optional<BalanceSnapshot> findByIdForUpdate(@Param("accountId") Long accountId);
+}
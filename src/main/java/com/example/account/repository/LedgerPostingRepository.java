@@ -0,0 +1,52 @@
+package com.example.account.repository;
+
+import com.example.account.domain.LedgerPosting;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerPostingRepository extends JpaRepository<LedgerPosting, Long> {
+    // 스냅샷 + 스냅샷 뒤의 기록을 한 쿼리로 읽는다. (사이에 스냅샷이 바뀌어도 같은 시점의 값)
+    @Query(value = "select cast(coalesce((select s.balance from balance_snapshot s " +
+            "where s.account_id = :accountId), 0) + " +
+            "coalesce((select sum(p.amount) from ledger_posting p " +
+            "where p.account_id = :accountId and not exists (select 1 from balance_snapshot s " +
+            "where s.account_id = p.account_id and s.posted_before > p.posted_at)), 0) as bigint)",
+            nativeQuery = true)
+    long findBalance(@Param("accountId") Long accountId);
+
+    // journal에서 커밋 여부를 모르는 거래 확인 (원장 기록이 있으면 커밋된 거래)
+    @Query("select distinct p.transactionId from LedgerPosting p where p.transactionId in :transactionIds")
+    List<String> findExistingTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+
+    // 아직 Account.balance에 반영하지 않은 입금 (스냅샷에 합치면 반영된다)
+    @Query("select coalesce(sum(p.amount), 0) from LedgerPosting p " +
+            "where p.accountId = :accountId and p.applied = false " +
+            "and not exists (select s from BalanceSnapshot s " +
+            "where s.accountId = p.accountId and s.postedBefore > p.postedAt)")
+    long sumPendingCredits(@Param("accountId") Long accountId);
+
+    // postedAfter: 앞에서 빠짐없이 훑은 구간의 끝 (처음이면 맨 앞부터)
+    @Query("select distinct p.accountId from LedgerPosting p " +
+            "where p.postedAt >= :postedAfter and p.postedAt < :postedBefore " +
+            "and not exists (select s from BalanceSnapshot s " +
+            "where s.accountId = p.accountId and s.postedBefore > p.postedAt)")
+    List<Long> findAccountIdsToSnapshot(
+            @Param("postedAfter") LocalDateTime postedAfter,
+            @Param("postedBefore") LocalDateTime postedBefore,
+            Pageable pageable);
+
+    @Query("select p from LedgerPosting p where p.accountId = :accountId " +
+            "and p.postedAt >= :postedAfter and p.postedAt < :postedBefore order by p.id")
+    List<LedgerPosting> findPostingsToSnapshot(
+            @Param("accountId") Long accountId,
+            @Param("postedAfter") LocalDateTime postedAfter,
+            @Param("postedBefore") LocalDateTime postedBefore);
+}
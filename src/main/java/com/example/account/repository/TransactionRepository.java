@@ -1,13 +1,66 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Transaction;
+import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistoryItem;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 // spring에서 jpa를 쓰기쉽게 해주도록 만들어진 인터페이스
 @Repository // bean에 등록
 public interface TransactionRepository extends JpaRepository<Transaction,Long> {
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    // 조회 응답에 필요한 컬럼만 읽는다. (계좌/사용자 엔티티를 읽지 않음)
+    @Query("select new com.example.account.dto.QueryTransactionResponse(" +
+            "a.accountNumber, t.transactionType, t.transactionResultType, " +
+            "t.transactionId, t.amount, t.transactedAt) " +
+            "from Transaction t join t.account a where t.transactionId = :transactionId")
+    Optional<QueryTransactionResponse> findQueryResponseByTransactionId(
+            @Param("transactionId") String transactionId);
+
+    // journal 재반영 시 이미 들어간 거래 확인
+    @Query("select t.transactionId from Transaction t where t.transactionId in :transactionIds")
+    List<String> findExistingTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+
+    // 거래 내역: (account_id, transacted_at, id) index 순서대로 최근 거래부터, 필요한 컬럼만
+    String HISTORY_SELECT = "select new com.example.account.dto.TransactionHistoryItem(" +
+            "t.id, t.transactionId, t.transactionType, t.transactionResultType, " +
+            "t.amount, t.toAccount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t where t.account.id = :accountId " +
+            "and (:type is null or t.transactionType = :type) " +
+            "and (:result is null or t.transactionResultType = :result) ";
+    String HISTORY_ORDER = "order by t.transactedAt desc, t.id desc";
+
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<TransactionHistoryItem> findHistory(
+            @Param("accountId") Long accountId,
+            @Param("type") TransactionType type,
+            @Param("result") TransactionResultType result,
+            Pageable pageable);
+
+    // cursor(앞 페이지 마지막 거래)보다 오래된 거래
+    // 앞의 transactedAt <= 조건은 결과를 바꾸지 않고, or 조건만으로는 못 하는 index 범위 탐색을 하게 한다.
+    @Query(HISTORY_SELECT +
+            "and t.transactedAt <= :transactedAt " +
+            "and (t.transactedAt < :transactedAt " +
+            "or (t.transactedAt = :transactedAt and t.id < :id)) " +
+            HISTORY_ORDER)
+    List<TransactionHistoryItem> findHistoryBefore(
+            @Param("accountId") Long accountId,
+            @Param("type") TransactionType type,
+            @Param("result") TransactionResultType result,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            Pageable pageable);
 }
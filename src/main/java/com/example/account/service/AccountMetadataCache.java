@@ -0,0 +1,73 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountMetadata;
+import com.example.account.repository.AccountRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 계좌번호 -> 계좌 정보(id, 소유주, 은행, 상태) read-through 캐시
+ * - Caffeine(W-TinyLFU)으로 크기를 제한하고, 자주 쓰는 계좌를 남긴다.
+ * - 잔액은 캐시하지 않는다. 잔액을 바꿀 때는 캐시한 id로 DB에서 읽는다.
+ * - 상태는 해지할 때만 바뀌므로 해지 커밋 후에 지운다.
+ *   (다른 노드의 캐시는 expire-after-write 뒤에 반영된다)
+ * - 없는 계좌는 캐시하지 않는다. (AccountNumberFilter가 거른다)
+ * metrics: cache.gets{cache=account.metadata, result=hit|miss}, cache.evictions,
+ * account.metadata.cache.hit-ratio
+ */
+@Component
+public class AccountMetadataCache {
+    private static final String CACHE_NAME = "account.metadata";
+
+    private final AccountRepository accountRepository;
+    private final Cache<String, AccountMetadata> cache;
+
+    public AccountMetadataCache(
+            AccountRepository accountRepository,
+            MeterRegistry meterRegistry,
+            @Value("${account.metadata-cache.max-size:100000}") long maxSize,
+            @Value("${account.metadata-cache.expire-after-write:600000}") long expireAfterWrite) {
+        this.accountRepository = accountRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWrite))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".cache.hit-ratio", cache, c -> c.stats().hitRate())
+                .description("계좌 정보 캐시 hit 비율")
+                .register(meterRegistry);
+    }
+
+    public Optional<AccountMetadata> get(String accountNumber) {
+        // 없으면 null을 돌려줘서 캐시하지 않는다.
+        return Optional.ofNullable(cache.get(accountNumber, key ->
+                accountRepository.findMetadataByAccountNumber(key).orElse(null)));
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 후에 지운다. (커밋 전에 지우면 다른 요청이 바뀌기 전 상태를 다시 채울 수 있다)
+     */
+    public void invalidate(String accountNumber) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(accountNumber);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(accountNumber);
+            }
+        });
+    }
+}
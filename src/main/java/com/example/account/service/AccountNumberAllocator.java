@@ -0,0 +1,165 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountNumberSequence;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountNumberSequenceRepository;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 계좌번호 발급
+ * - DB 순번(AccountNumberSequence)에서 blockSize개씩 예약하고 메모리에서 하나씩 나눠준다.
+ *   노드마다 다른 블록을 받으므로 중복 확인 쿼리 없이 겹치지 않는다. (재시작하면 남은 블록은 버림)
+ * - 순번은 비밀 키로 섞어서(Feistel) 다음 계좌번호를 추측할 수 없게 한다. 섞는 함수는 일대일이다.
+ *   키(account.number.secret, 환경 변수 ACCOUNT_NUMBER_SECRET)는 기본값이 없고, 없으면 시작하지 않는다.
+ * - 형식: 9 + 섞은 순번 8자리 + Luhn 검증 숫자 (기존 랜덤 계좌번호는 1~8만 써서 겹치지 않는다)
+ */
+@Slf4j
+@Component
+public class AccountNumberAllocator {
+    static final String SEQUENCE_NAME = "ACCOUNT";
+    private static final char PREFIX = '9';
+    private static final long RANGE = 100_000_000L;
+    // 2^28 > RANGE, 범위를 넘으면 한 번 더 섞는다. (cycle walking)
+    private static final int HALF_BITS = 14;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final AccountNumberSequenceRepository accountNumberSequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    // 현재 블록에서 다음에 나눠줄 순번과 블록 끝
+    private long next;
+    private long end;
+
+    public AccountNumberAllocator(
+            AccountNumberSequenceRepository accountNumberSequenceRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.number.block-size:1000}") int blockSize,
+            @Value("${account.number.secret:}") String secret) {
+        this.accountNumberSequenceRepository = accountNumberSequenceRepository;
+        // 계좌 생성 트랜잭션과 상관없이 블록 예약은 바로 커밋한다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        long key = parseSecret(secret);
+        for (int i = 0; i < ROUNDS; i++) {
+            roundKeys[i] = mix(key + i * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    private static long parseSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException(
+                    "account.number.secret is required. Set ACCOUNT_NUMBER_SECRET to a random 64-bit integer.");
+        }
+        try {
+            return Long.parseLong(secret.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("account.number.secret must be a 64-bit integer.", e);
+        }
+    }
+
+    public synchronized String allocate() {
+        if (next >= end) {
+            reserveBlock();
+        }
+        return format(permute(next++));
+    }
+
+    private void reserveBlock() {
+        Long start = transactionTemplate.execute(status -> {
+            AccountNumberSequence sequence = accountNumberSequenceRepository
+                    .findByNameForUpdate(SEQUENCE_NAME)
+                    .orElseGet(() -> AccountNumberSequence.builder()
+                            .name(SEQUENCE_NAME)
+                            .nextValue(0L)
+                            .build());
+            long value = sequence.getNextValue();
+            sequence.setNextValue(value + blockSize);
+            accountNumberSequenceRepository.save(sequence);
+            return value;
+        });
+        if (start == null || start >= RANGE) {
+            throw new AccountException(ErrorCode.ACCOUNT_NUMBER_EXHAUSTED);
+        }
+        next = start;
+        end = Math.min(start + blockSize, RANGE);
+        log.info("Reserved account number block [{}, {})", next, end);
+    }
+
+    long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= RANGE);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long mixed = left ^ (mix(right ^ roundKeys[i]) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    // splitmix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String format(long value) {
+        char[] digits = new char[10];
+        digits[0] = PREFIX;
+        for (int i = 8; i >= 1; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        digits[9] = (char) ('0' + luhnCheckDigit(digits, 9));
+        return new String(digits);
+    }
+
+    /**
+     * 발급한 계좌번호 형식인지 (접두 숫자, 길이, Luhn 검증 숫자) 확인한다.
+     */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != 10 || accountNumber.charAt(0) != PREFIX) {
+            return false;
+        }
+        char[] digits = accountNumber.toCharArray();
+        for (char digit : digits) {
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return luhnCheckDigit(digits, 9) == digits[9] - '0';
+    }
+
+    // 오른쪽 숫자부터 하나 걸러 두 배
+    private static int luhnCheckDigit(char[] digits, int length) {
+        int sum = 0;
+        for (int i = length - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits[i] - '0';
+            if (position % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
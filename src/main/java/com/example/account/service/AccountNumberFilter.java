@@ -0,0 +1,278 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * 등록된 계좌번호의 Bloom filter
+ * 없는 계좌번호로 온 요청을 DB 조회 전에 걸러낸다. (false면 확실히 없음, true면 있을 수도 있음)
+ * - local: 노드 메모리에 둔다. 다른 노드에서 만든 계좌를 모르므로 노드가 하나일 때만 쓴다.
+ * - redis: Redisson RBloomFilter를 여러 노드가 같이 쓴다.
+ * - none: 걸러내지 않는다.
+ * 시작할 때 계좌번호를 스트리밍으로 읽어 채우고, 계좌를 만들 때마다 추가한다.
+ * 채우기 전이나 redis 오류가 나면 있다고 보고 DB에서 확인한다.
+ * 추가는 한 번 다시 시도하고 그래도 실패하면 예외를 던져서 계좌 개설을 롤백한다.
+ * (redis 모드는 여러 노드가 같은 filter를 쓰므로 빠진 번호가 있으면 다른 노드가 있는 계좌를 거절한다)
+ */
+@Slf4j
+@Component
+public class AccountNumberFilter {
+    private static final String REDIS_KEY = "ACCOUNT_NUMBERS";
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Filter filter;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private volatile boolean ready;
+
+    private final Counter rejectedCounter;
+
+    public AccountNumberFilter(
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<RedissonClient> redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${account.bloom.type:redis}") String type,
+            @Value("${account.bloom.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${account.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        switch (type) {
+            case "local":
+                this.filter = new LocalFilter(expectedInsertions, falsePositiveRate);
+                break;
+            case "redis":
+                this.filter = new RedisFilter(redissonClient.getObject(), expectedInsertions, falsePositiveRate);
+                break;
+            default:
+                this.filter = null;
+        }
+        this.rejectedCounter = Counter.builder("account.bloom.rejected")
+                .description("Bloom filter에서 걸러서 DB를 조회하지 않은 계좌번호 수")
+                .register(meterRegistry);
+        if (filter != null) {
+            Gauge.builder("account.bloom.size.bytes", filter, f -> f.sizeInBits() / 8.0)
+                    .description("Bloom filter 크기")
+                    .register(meterRegistry);
+            Gauge.builder("account.bloom.count", filter, Filter::count)
+                    .description("Bloom filter에 넣은 계좌번호 수 (추정)")
+                    .register(meterRegistry);
+            Gauge.builder("account.bloom.false-positive-rate.expected", this, f -> falsePositiveRate)
+                    .description("설정한 false positive 비율")
+                    .register(meterRegistry);
+            Gauge.builder("account.bloom.false-positive-rate.estimated", this,
+                            AccountNumberFilter::estimatedFalsePositiveRate)
+                    .description("현재 개수 기준 false positive 비율")
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void populate() {
+        if (filter == null) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> accountNumbers = accountRepository.streamAllAccountNumbers()) {
+                    accountNumbers.forEach(accountNumber -> {
+                        filter.put(accountNumber);
+                        count.incrementAndGet();
+                    });
+                }
+            });
+            ready = true;
+            log.info("Populated account number filter with {} accounts in {} ms",
+                    count.get(), System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            log.error("Failed to populate account number filter, lookups go to DB.", e);
+        }
+    }
+
+    /**
+     * false면 등록된 적 없는 계좌번호
+     */
+    public boolean mightContain(String accountNumber) {
+        if (filter == null || !ready || accountNumber == null) {
+            return true;
+        }
+        try {
+            if (filter.mightContain(accountNumber)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Account number filter is unavailable: {}", e.getMessage());
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    // 계좌를 만들 때 커밋 전에 호출 (롤백되어도 false positive가 하나 늘 뿐이다)
+    // 넣지 못하면 예외를 그대로 던진다. 없는 번호로 남으면 false negative가 된다.
+    public void put(String accountNumber) {
+        if (filter == null) {
+            return;
+        }
+        try {
+            filter.put(accountNumber);
+        } catch (RuntimeException e) {
+            log.warn("Failed to add account number to filter, retrying: {}", e.getMessage());
+            filter.put(accountNumber);
+        }
+    }
+
+    double estimatedFalsePositiveRate() {
+        double k = filter.hashIterations();
+        double m = filter.sizeInBits();
+        return Math.pow(1 - Math.exp(-k * filter.count() / m), k);
+    }
+
+    private interface Filter {
+        boolean mightContain(String value);
+
+        void put(String value);
+
+        long sizeInBits();
+
+        int hashIterations();
+
+        long count();
+    }
+
+    /**
+     * long 배열 비트셋, 해시 두 개로 k개 위치를 만든다. (Kirsch-Mitzenmacher)
+     */
+    static class LocalFilter implements Filter {
+        private final AtomicLongArray bits;
+        private final long sizeInBits;
+        private final int hashIterations;
+        private final AtomicLong count = new AtomicLong();
+
+        LocalFilter(long expectedInsertions, double falsePositiveRate) {
+            long size = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                    / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((size + 63) / 64));
+            this.sizeInBits = bits.length() * 64L;
+            this.hashIterations = Math.max(1,
+                    (int) Math.round((double) sizeInBits / expectedInsertions * Math.log(2)));
+        }
+
+        @Override
+        public boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashIterations; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, sizeInBits);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void put(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 1; i <= hashIterations; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, sizeInBits);
+                long mask = 1L << index;
+                long previous = bits.getAndAccumulate((int) (index >>> 6), mask, (a, b) -> a | b);
+                changed |= (previous & mask) == 0;
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        @Override
+        public long sizeInBits() {
+            return sizeInBits;
+        }
+
+        @Override
+        public int hashIterations() {
+            return hashIterations;
+        }
+
+        @Override
+        public long count() {
+            return count.get();
+        }
+
+        // FNV-1a 64 + splitmix64 마무리
+        private static long hash(String value) {
+            long hash = 0xCBF29CE484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001B3L;
+            }
+            hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+            hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+            return hash ^ (hash >>> 31);
+        }
+    }
+
+    static class RedisFilter implements Filter {
+        private final RBloomFilter<String> bloomFilter;
+
+        RedisFilter(RedissonClient redissonClient, long expectedInsertions, double falsePositiveRate) {
+            this.bloomFilter = redissonClient.getBloomFilter(REDIS_KEY, StringCodec.INSTANCE);
+            // 이미 있으면 기존 설정을 그대로 쓴다.
+            bloomFilter.tryInit(expectedInsertions, falsePositiveRate);
+        }
+
+        @Override
+        public boolean mightContain(String value) {
+            return bloomFilter.contains(value);
+        }
+
+        @Override
+        public void put(String value) {
+            bloomFilter.add(value);
+        }
+
+        @Override
+        public long sizeInBits() {
+            return bloomFilter.getSize();
+        }
+
+        @Override
+        public int hashIterations() {
+            return bloomFilter.getHashIterations();
+        }
+
+        @Override
+        public long count() {
+            return bloomFilter.count();
+        }
+    }
+}
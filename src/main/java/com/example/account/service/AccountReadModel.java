@@ -0,0 +1,368 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.AccountView;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRespository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.StatusListener;
+import org.redisson.client.RedisException;
+import org.redisson.codec.SerializationCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 사용자 -> 계좌 -> 잔액 읽기 모델 (GET /account?user_id=, GET /account/{id})
+ * - 계좌를 바꾸는 코드(AccountService, TransactionService, ReservationWriter, LedgerService)가
+ *   커밋 후에 반영한다. 늦게 온 변경이 새 값을 덮지 않게 계좌 version이 커질 때만 바꾼다.
+ * - topic.enabled면 커밋 후의 계좌를 redis topic으로 보내고, 다른 노드도 같은 version 비교로 반영한다.
+ *   다른 노드의 변경은 topic 지연(보통 수 ms) 안에 보인다.
+ *   구독이 끊기면 그동안의 메시지를 잃으므로 읽기는 DB로 보내고, 다시 구독되면 DB에서 다시 맞춘 뒤 쓴다.
+ * - 시작할 때와 refresh-interval마다 DB를 스트리밍으로 읽어 다시 맞춘다.
+ *   (topic을 끄거나, 구독 중에 메시지가 유실되면 다른 노드의 변경은 이때 반영된다)
+ * - 마지막으로 맞춘 지 max-staleness가 지나면 읽기는 DB로 간다.
+ * metrics: account.read-model.accounts, account.read-model.refresh.age(s),
+ * account.read-model.topic.lag, account.read-model.updates{result=applied|stale|missing|remote}
+ */
+@Slf4j
+@Component
+public class AccountReadModel {
+    private static final String TOPIC = "ACCOUNT_READ_MODEL";
+
+    private final AccountRepository accountRepository;
+    private final AccountUserRespository accountUserRespository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long maxStaleness;
+    private final RTopic topic;
+    // 자기가 보낸 메시지는 이미 반영했으므로 거른다.
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, AccountView> accounts = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> accountIdsByUser = new ConcurrentHashMap<>();
+    private volatile long refreshedAt;
+    private volatile boolean ready;
+    private volatile boolean subscribed;
+    // 구독이 끊겼다가 다시 붙음: 놓친 메시지가 있을 수 있어 다시 맞춰야 한다.
+    private volatile boolean resyncRequired;
+
+    private final Counter appliedCounter;
+    private final Counter staleCounter;
+    private final Counter missingCounter;
+    private final Counter remoteCounter;
+    private final Timer lagTimer;
+
+    public AccountReadModel(AccountRepository accountRepository,
+                            AccountUserRespository accountUserRespository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            ObjectProvider<RedissonClient> redissonClient,
+                            @Value("${account.read-model.enabled:true}") boolean enabled,
+                            @Value("${account.read-model.max-staleness:600000}") long maxStaleness,
+                            @Value("${account.read-model.topic.enabled:false}") boolean topicEnabled) {
+        this.accountRepository = accountRepository;
+        this.accountUserRespository = accountUserRespository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxStaleness = maxStaleness;
+        Gauge.builder("account.read-model.accounts", accounts, Map::size)
+                .description("읽기 모델의 계좌 수")
+                .register(meterRegistry);
+        // 실제 지연이 아니라 DB 전체를 다시 읽은 뒤 지난 시간 (topic이 없을 때의 최대 지연)
+        Gauge.builder("account.read-model.refresh.age", this, m -> m.ready
+                        ? (System.currentTimeMillis() - m.refreshedAt) / 1000.0 : -1)
+                .description("DB 전체를 마지막으로 다시 읽은 뒤 지난 시간(s), 채우기 전이면 -1")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("account.read-model.topic.lag")
+                .description("다른 노드에서 커밋한 계좌가 이 노드에 반영되기까지 걸린 시간 (노드 시계 기준)")
+                .register(meterRegistry);
+        this.appliedCounter = updateCounter(meterRegistry, "applied");
+        this.staleCounter = updateCounter(meterRegistry, "stale");
+        this.missingCounter = updateCounter(meterRegistry, "missing");
+        this.remoteCounter = updateCounter(meterRegistry, "remote");
+        this.topic = enabled && topicEnabled
+                ? redissonClient.getObject().getTopic(TOPIC, new SerializationCodec())
+                : null;
+        if (topic != null) {
+            subscribe();
+        }
+    }
+
+    private void subscribe() {
+        topic.addListener(new StatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                // 채운 뒤에 구독이 붙었으면 그 사이의 메시지를 놓쳤다. (채우기 전이면 populate가 맞춘다)
+                if (ready) {
+                    resyncRequired = true;
+                }
+                subscribed = true;
+            }
+
+            @Override
+            public void onUnsubscribe(String channel) {
+                subscribed = false;
+                log.warn("Account read model topic unsubscribed, reads go to DB until resynced.");
+            }
+        });
+        topic.addListener(Update.class, (channel, update) -> receive(update));
+    }
+
+    private static Counter updateCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("account.read-model.updates")
+                .description("읽기 모델 반영 결과 (stale: 이미 더 새 값, missing: 모르는 계좌)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void populate() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${account.read-model.refresh-interval:300000}",
+            initialDelayString = "${account.read-model.refresh-interval:300000}")
+    public void scheduledRefresh() {
+        rebuild();
+    }
+
+    /**
+     * topic을 다시 구독했으면 놓친 메시지 대신 DB에서 다시 맞춘다.
+     */
+    @Scheduled(fixedDelayString = "${account.read-model.resync-check-interval:1000}")
+    public void resyncIfRequired() {
+        if (resyncRequired && subscribed) {
+            resyncRequired = false;
+            if (!rebuild()) {
+                resyncRequired = true;
+            }
+        }
+    }
+
+    /**
+     * DB 전체를 스트리밍으로 읽어 맞춘다. 읽는 동안 온 변경은 version으로 가려서 덮지 않는다.
+     */
+    boolean rebuild() {
+        if (!enabled) {
+            return false;
+        }
+        long startedAt = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Long> userIds = accountUserRespository.streamAllIds()) {
+                    userIds.forEach(userId -> accountIdsByUser.computeIfAbsent(userId, id -> newIdSet()));
+                }
+                try (Stream<AccountView> views = accountRepository.streamAllViews()) {
+                    views.forEach(view -> {
+                        upsert(view);
+                        count.incrementAndGet();
+                    });
+                }
+            });
+            // 계좌는 해지만 하고 지우지 않으므로 스캔에 없는 계좌를 지울 일은 없다.
+            refreshedAt = startedAt;
+            ready = true;
+            log.info("Rebuilt account read model with {} accounts in {} ms",
+                    count.get(), System.currentTimeMillis() - startedAt);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild account read model, reads go to DB while stale.", e);
+            return false;
+        }
+    }
+
+    /**
+     * 채웠고 max-staleness 안에 DB와 맞췄고, topic을 쓰면 놓친 메시지가 없을 때 true
+     */
+    public boolean isReady() {
+        return enabled && ready && System.currentTimeMillis() - refreshedAt < maxStaleness
+                && (topic == null || (subscribed && !resyncRequired));
+    }
+
+    /**
+     * 사용자의 계좌 목록 (id 순), 모르는 사용자면 empty
+     */
+    public Optional<List<AccountView>> findByUserId(Long userId) {
+        Set<Long> accountIds = accountIdsByUser.get(userId);
+        if (accountIds == null) {
+            return Optional.empty();
+        }
+        return Optional.of(accountIds.stream()
+                .map(accounts::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    public Optional<AccountView> findById(Long accountId) {
+        return Optional.ofNullable(accounts.get(accountId));
+    }
+
+    /**
+     * 새 계좌는 커밋 후에 넣는다.
+     */
+    public void putAfterCommit(AccountView view) {
+        afterCommit(() -> applyAndPublish(view));
+    }
+
+    /**
+     * 엔티티로 바꾼 계좌는 커밋 후의 값(flush로 올라간 version 포함)으로 반영한다.
+     */
+    public void updateAfterCommit(Collection<Account> changed) {
+        List<Account> copy = new ArrayList<>(changed);
+        afterCommit(() -> copy.forEach(this::update));
+    }
+
+    /**
+     * bulk update(update ... set)로 바꾼 계좌는 엔티티에 값이 없으므로 커밋 후에 DB에서 다시 읽는다.
+     */
+    public void reloadAfterCommit(Collection<Long> accountIds) {
+        if (!enabled || accountIds.isEmpty()) {
+            return;
+        }
+        List<Long> copy = new ArrayList<>(accountIds);
+        afterCommit(() -> {
+            try {
+                accountRepository.findViewsByIdIn(copy).forEach(this::applyAndPublish);
+            } catch (RuntimeException e) {
+                // 다음 refresh에서 맞춰진다.
+                log.warn("Failed to reload accounts into read model: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+    private void update(Account account) {
+        AccountView current = accounts.get(account.getId());
+        if (current == null) {
+            // 다른 노드에서 만든 계좌 등, 다음 refresh에서 채운다.
+            missingCounter.increment();
+            return;
+        }
+        if (Objects.equals(current.getVersion(), account.getVersion())) {
+            // 바뀌지 않은 계좌 (deferred-credit의 받는 계좌 등)
+            return;
+        }
+        applyAndPublish(current.toBuilder()
+                .balance(account.getBalance())
+                .accountStatus(account.getAccountStatus())
+                .unRegisteredAt(account.getUnRegisteredAt())
+                .version(account.getVersion())
+                .build());
+    }
+
+    private void applyAndPublish(AccountView view) {
+        if (upsert(view)) {
+            appliedCounter.increment();
+        } else {
+            staleCounter.increment();
+        }
+        publish(view);
+    }
+
+    // 커밋된 값을 다른 노드에 보낸다. 응답을 기다리지 않고, 유실되면 다음 refresh에서 맞춰진다.
+    private void publish(AccountView view) {
+        if (topic == null) {
+            return;
+        }
+        try {
+            topic.publishAsync(new Update(nodeId, view, System.currentTimeMillis()))
+                    .whenComplete((receivers, e) -> {
+                        if (e != null) {
+                            log.warn("Failed to publish account to read model topic: {}", e.getMessage());
+                        }
+                    });
+        } catch (RedisException e) {
+            log.warn("Failed to publish account to read model topic: {}", e.getMessage());
+        }
+    }
+
+    void receive(Update update) {
+        if (nodeId.equals(update.getNodeId())) {
+            return;
+        }
+        if (upsert(update.getView())) {
+            remoteCounter.increment();
+        }
+        lagTimer.record(Math.max(0L, System.currentTimeMillis() - update.getPublishedAt()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private boolean upsert(AccountView view) {
+        boolean[] applied = {false};
+        accounts.compute(view.getId(), (id, current) -> {
+            if (current != null && !isNewer(view, current)) {
+                return current;
+            }
+            applied[0] = true;
+            return view;
+        });
+        if (applied[0]) {
+            accountIdsByUser.computeIfAbsent(view.getUserId(), id -> newIdSet()).add(view.getId());
+        }
+        return applied[0];
+    }
+
+    private static boolean isNewer(AccountView view, AccountView current) {
+        if (view.getVersion() == null || current.getVersion() == null) {
+            return true;
+        }
+        return view.getVersion() > current.getVersion();
+    }
+
+    private static Set<Long> newIdSet() {
+        return new ConcurrentSkipListSet<>();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class Update implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String nodeId;
+        private final AccountView view;
+        private final long publishedAt;
+    }
+}
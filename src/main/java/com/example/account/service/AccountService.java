@@ -2,7 +2,10 @@ package com.example.account.service;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.AccountView;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRespository;
@@ -12,10 +15,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import java.util.stream.Collectors;
 
 import static com.example.account.type.AccountStatus.IN_USE;
@@ -24,44 +27,47 @@ import static com.example.account.type.ErrorCode.*;
 @Service
 @RequiredArgsConstructor // 필수 인자만 입력받는 생성자를 만들어주는 어노테이션
 public class AccountService {
+    private static final int MAX_ACCOUNTS_PER_USER = 10;
 
     // final: 무조건 생성자에 들어가야하는 값
     private final AccountRepository accountRepository;
     private final AccountUserRespository accountUserRespository;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final AccountNumberFilter accountNumberFilter;
+    private final AccountMetadataCache accountMetadataCache;
+    private final LedgerService ledgerService;
+    private final AccountReadModel accountReadModel;
 
     /**
      *
      *  사용자가 있는지 조회
-     *   계좌 번호 생성
+     *   계좌 번호 발급 (AccountNumberAllocator)
      *   계좌 저장, 그 정보 전달
      */
     @Transactional
     public AccountDto createAccount(
             Long userId, Long initialBalance, String bank){
 
-        AccountUser accountUser = getAccountUser(userId);
+        // 계좌 수를 바꾸므로 사용자 row를 잠그고 읽는다.
+        AccountUser accountUser = getAccountUserForUpdate(userId);
         validateCreateAccount(accountUser,bank);
-        // 계좌번호 랜덤 생성
-        StringBuilder newAccountNumber= new StringBuilder();
-        Optional<Account> account = accountRepository.findFirstByOrderByIdDesc();
-        Random random = new Random();
-        for(int i=1; i<=10; i++){
-            newAccountNumber.append(random.nextInt(8) + 1);
-        }
-        // 동일한 계좌있는지 확인
-        if(accountRepository.findByAccountNumber(newAccountNumber.toString()).isPresent()){
-            throw new AccountException(ACCOUNT_ALREADY_EXISTS);
-        }
+        // 미리 예약한 블록에서 발급하므로 중복 확인이 필요 없다.
+        String newAccountNumber = accountNumberAllocator.allocate();
         try{
-            return AccountDto.fromEntity(accountRepository.save(
+            Account account = accountRepository.save(
                     Account.builder()
                             .accountUser(accountUser)
                             .accountStatus(IN_USE)
-                            .accountNumber(newAccountNumber.toString())
+                            .accountNumber(newAccountNumber)
                             .balance(initialBalance)
                             .bank(Bank.valueOf(bank))
                             .registeredAt(LocalDateTime.now())
-                            .build()));
+                            .build());
+            // 개설 입금을 원장에 남긴다.
+            ledgerService.open(account);
+            accountNumberFilter.put(newAccountNumber);
+            accountReadModel.putAfterCommit(AccountView.fromEntity(account));
+            return AccountDto.fromEntity(account);
 
         }catch (AccountException e){
             throw new AccountException(BANK_NOT_FOUND);
@@ -70,61 +76,96 @@ public class AccountService {
     }
 
     private void validateCreateAccount(AccountUser accountUser, String bank) {
-        if(accountRepository.countByAccountUser(accountUser) == 10){
-            throw new AccountException(MAX_COUNT_PER_USER);
-        }
         try{
             Bank.valueOf(bank);
         }catch (AccountException e){
             throw new AccountException(BANK_NOT_FOUND);
         }
+        // 잠근 사용자 row의 계좌 수로 확인하고 늘린다. (COUNT 쿼리 없음, 커밋 때 이 사용자 row만 update)
+        if(!accountUser.increaseAccountCount(MAX_ACCOUNTS_PER_USER)){
+            throw new AccountException(MAX_COUNT_PER_USER);
+        }
     }
 
-    @Transactional
-    public Account getAccount(Long id){
+    /**
+     * 읽기 모델에서 읽고, 모델이 준비되지 않았거나 모르는 계좌면 DB에서 필요한 컬럼만 읽는다.
+     */
+    public AccountView getAccount(Long id){
         if(id < 0){
             throw new RuntimeException("Minus");
         }
-        return accountRepository.findById(id).orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        if (accountReadModel.isReady()) {
+            Optional<AccountView> view = accountReadModel.findById(id);
+            if (view.isPresent()) {
+                return view.get();
+            }
+        }
+        return accountRepository.findViewById(id).orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
     }
 
     @Transactional
     public AccountDto deleteAccount(Long userId, String accountNumber) {
-        AccountUser accountUser = getAccountUser(userId);
+        AccountUser accountUser = getAccountUserForUpdate(userId);
+        if (!accountNumberFilter.mightContain(accountNumber)) {
+            throw new AccountException(ACCOUNT_NOT_FOUND);
+        }
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
-        validateDeleteeAccount(accountUser,account);
+        validateDeleteeAccount(accountUser,account,ledgerService.getPendingCredit(account.getId()));
 
         account.setAccountStatus(AccountStatus.UNREGISTERED);
         account.setUnRegisteredAt(LocalDateTime.now());
 
         accountRepository.save(account);
+        accountUser.decreaseAccountCount();
+        accountMetadataCache.invalidate(accountNumber);
+        accountReadModel.updateAfterCommit(Collections.singletonList(account));
 
         return AccountDto.fromEntity(account);
     }
 
-    private void validateDeleteeAccount(AccountUser accountUser, Account account) {
+    private void validateDeleteeAccount(AccountUser accountUser, Account account, long pendingCredit) {
         if(!Objects.equals(accountUser.getId(),account.getAccountUser().getId())){
             throw new AccountException(USER_ACCOUNT_UN_MATCH);
         }
         if(account.getAccountStatus() == AccountStatus.UNREGISTERED){
             throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
         }
-        if(account.getBalance() > 0){
+        // 아직 반영되지 않은 입금도 잔액
+        if(account.getBalance() + pendingCredit > 0){
             throw new AccountException(BALANCE_NOT_EMPTY);
         }
     }
-    @Transactional
     public List<AccountDto> getAccountsByUserId(Long userId) {
-        AccountUser accountUser = getAccountUser(userId);
-
-        List<Account> accounts = accountRepository
-                .findByAccountUser(accountUser);
+        // 읽기 모델이 준비됐으면 JPA를 거치지 않는다. (모르는 사용자면 DB에서 확인)
+        if (accountReadModel.isReady()) {
+            Optional<List<AccountView>> views = accountReadModel.findByUserId(userId);
+            if (views.isPresent()) {
+                return views.get().stream()
+                        .map(AccountDto::fromView)
+                        .collect(Collectors.toList());
+            }
+        }
+        // 사용자 확인 (2차 캐시)
+        getAccountUser(userId);
+        // 엔티티 대신 응답에 필요한 컬럼만 한 번에 읽는다.
+        return accountRepository.findAccountDtosByUserId(userId);
+    }
 
-        // List<Account> -> List<AccountDto>
-        return accounts.stream()
-                .map(AccountDto::fromEntity)
-                .collect(Collectors.toList());
+    /**
+     * 원장 잔액: 스냅샷 하나와 그 뒤의 기록만 읽는다.
+     */
+    @Transactional(readOnly = true)
+    public AccountBalance getBalance(String accountNumber) {
+        if (!accountNumberFilter.mightContain(accountNumber)) {
+            throw new AccountException(ACCOUNT_NOT_FOUND);
+        }
+        AccountMetadata metadata = accountMetadataCache.get(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        return AccountBalance.builder()
+                .accountNumber(accountNumber)
+                .balance(ledgerService.getBalance(metadata.getId()))
+                .build();
     }
 
     private AccountUser getAccountUser(Long userId) {
@@ -133,4 +174,10 @@ public class AccountService {
                 .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
         return accountUser;
     }
+
+    // 2차 캐시를 거치지 않고 잠가서 읽는다. (캐시의 계좌 수는 다른 요청이 바꾼 뒤일 수 있다)
+    private AccountUser getAccountUserForUpdate(Long userId) {
+        return accountUserRespository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+    }
 }
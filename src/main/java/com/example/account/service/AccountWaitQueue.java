@@ -0,0 +1,196 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * lock 앞단의 계좌별 대기열 (admission)
+ * - 계좌마다 한 요청만 통과시키고 나머지는 FIFO로 기다리게 한다.
+ * - 앞 요청이 끝나면 다음 대기자에게 바로 넘겨준다. (spin 없음)
+ * - 대기열이 가득 차 있으면 기다리지 않고 바로 ACCOUNT_TRANSACTION_QUEUE_FULL
+ * - 최대 대기 시간을 넘기면 ACCOUNT_TRANSACTION_LOCK
+ */
+@Slf4j
+@Component
+public class AccountWaitQueue {
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final boolean enabled;
+    private final int maxDepth;
+    private final long maxWaitMillis;
+
+    private final Timer waitTimer;
+    private final DistributionSummary depthSummary;
+    private final Counter rejectedCounter;
+
+    public AccountWaitQueue(
+            MeterRegistry meterRegistry,
+            @Value("${account.lock.queue.enabled:true}") boolean enabled,
+            @Value("${account.lock.queue.max-depth:16}") int maxDepth,
+            @Value("${account.lock.queue.max-wait:3000}") long maxWaitMillis) {
+        this.enabled = enabled;
+        this.maxDepth = maxDepth;
+        this.maxWaitMillis = maxWaitMillis;
+        this.waitTimer = Timer.builder("account.lock.queue.wait")
+                .description("계좌 대기열에서 기다린 시간")
+                .register(meterRegistry);
+        this.depthSummary = DistributionSummary.builder("account.lock.queue.depth")
+                .description("대기열에 들어갈 때 앞에 있던 대기자 수")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("account.lock.queue.rejected")
+                .description("대기열이 가득 차서 거절된 요청 수")
+                .register(meterRegistry);
+        Gauge.builder("account.lock.queue.waiting", waiting, AtomicInteger::get)
+                .description("현재 대기 중인 요청 수")
+                .register(meterRegistry);
+        Gauge.builder("account.lock.queue.accounts", slots, ConcurrentHashMap::size)
+                .description("사용 중이거나 대기자가 있는 계좌 수")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 요청 스레드에서 차례가 올 때까지 기다린다.
+     */
+    public void await(Collection<String> accountNumbers) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            acquire(accountNumbers).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AccountException) {
+                throw (AccountException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 계좌번호 순서대로 차례를 얻는다. 하나라도 실패하면 얻은 차례는 돌려준다.
+     */
+    public CompletableFuture<Void> acquire(Collection<String> accountNumbers) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<String> ordered = new ArrayList<>(new TreeSet<>(accountNumbers));
+        return acquireFrom(ordered, 0);
+    }
+
+    private CompletableFuture<Void> acquireFrom(List<String> ordered, int index) {
+        if (index == ordered.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String accountNumber = ordered.get(index);
+        return acquire(accountNumber).thenCompose(v ->
+                acquireFrom(ordered, index + 1).whenComplete((r, e) -> {
+                    if (e != null) {
+                        release(accountNumber);
+                    }
+                }));
+    }
+
+    public void release(Collection<String> accountNumbers) {
+        if (!enabled) {
+            return;
+        }
+        for (String accountNumber : accountNumbers) {
+            release(accountNumber);
+        }
+    }
+
+    private CompletableFuture<Void> acquire(String accountNumber) {
+        CompletableFuture<Void> ticket = new CompletableFuture<>();
+        int[] depth = {-1};
+        slots.compute(accountNumber, (key, slot) -> {
+            if (slot == null) {
+                slot = new Slot();
+            }
+            if (!slot.held) {
+                slot.held = true;
+                depth[0] = 0;
+            } else if (slot.waiters.size() < maxDepth) {
+                depth[0] = slot.waiters.size() + 1;
+                slot.waiters.add(ticket);
+            }
+            return slot;
+        });
+        // compute 안에서 future를 완료하면 후속 작업이 map을 다시 건드릴 수 있으므로 밖에서 처리
+        if (depth[0] < 0) {
+            rejectedCounter.increment();
+            log.error("Wait queue is full for accountNumber: {}", accountNumber);
+            ticket.completeExceptionally(
+                    new AccountException(ErrorCode.ACCOUNT_TRANSACTION_QUEUE_FULL));
+            return ticket;
+        }
+        depthSummary.record(depth[0]);
+        if (depth[0] == 0) {
+            waitTimer.record(0, TimeUnit.MILLISECONDS);
+            ticket.complete(null);
+            return ticket;
+        }
+
+        waiting.incrementAndGet();
+        long startedAt = System.nanoTime();
+        return ticket.orTimeout(maxWaitMillis, TimeUnit.MILLISECONDS)
+                .handle((v, e) -> {
+                    waiting.decrementAndGet();
+                    waitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    if (e instanceof TimeoutException) {
+                        removeWaiter(accountNumber, ticket);
+                        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 다음 대기자에게 바로 넘겨준다. 대기자가 없으면 계좌를 비운다.
+     */
+    private void release(String accountNumber) {
+        while (true) {
+            CompletableFuture<Void>[] next = new CompletableFuture[1];
+            slots.computeIfPresent(accountNumber, (key, slot) -> {
+                next[0] = slot.waiters.poll();
+                return next[0] == null ? null : slot;
+            });
+            // 이미 시간 초과된 대기자였다면 그 다음 대기자에게 넘긴다.
+            if (next[0] == null || next[0].complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private void removeWaiter(String accountNumber, CompletableFuture<Void> ticket) {
+        slots.computeIfPresent(accountNumber, (key, slot) -> {
+            slot.waiters.remove(ticket);
+            return slot;
+        });
+    }
+
+    // held가 true인 동안은 한 요청이 계좌를 쓰고 있다.
+    private static class Slot {
+        private boolean held;
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * RESERVATION 모드의 redis 잔액 카운터
+ * - 계좌마다 사용 가능 잔액(ACBL), 아직 DB에 반영 안 된 출금 수(ACPD), DB 반영 순번(ACSQ)을 둔다.
+ * - 출금은 Lua 스크립트로 잔액 확인과 차감을 한 번에 한다. (lock 없음)
+ * - 받는 계좌는 DB 커밋 후에 더해준다. (커밋 전 금액은 쓸 수 없다)
+ *   커밋 전에 반영 중(ACPD)으로 표시해 두어서, 커밋과 더하기 사이의 reseed가 DB 잔액으로 덮은 뒤 또 더하지 않게 한다.
+ * - 시작할 때와 reconcile 주기마다 DB 잔액으로 다시 맞춘다. 반영 중인 출금이 있는 계좌는 건너뛴다.
+ */
+@Slf4j
+@Service
+public class BalanceReservationService {
+    // -2: 카운터 없음, -1: 잔액 부족, 그 외: 차감 후 잔액
+    private static final String RESERVE_SCRIPT =
+            "local balance = redis.call('get', KEYS[1]) " +
+            "if balance == false then return -2 end " +
+            "if tonumber(balance) < tonumber(ARGV[1]) then return -1 end " +
+            "redis.call('incr', KEYS[2]) " +
+            "return redis.call('decrby', KEYS[1], ARGV[1])";
+    private static final String SETTLE_SCRIPT =
+            "redis.call('decr', KEYS[1]) " +
+            "return redis.call('incr', KEYS[2])";
+    private static final String BEGIN_CREDIT_SCRIPT =
+            "redis.call('incr', KEYS[1]) " +
+            "return redis.call('incr', KEYS[2])";
+    private static final String CREDIT_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 1 then redis.call('incrby', KEYS[1], ARGV[1]) end " +
+            "redis.call('decr', KEYS[2]) " +
+            "return redis.call('incr', KEYS[3])";
+    private static final String ABORT_CREDIT_SCRIPT =
+            "redis.call('decr', KEYS[1]) " +
+            "return redis.call('incr', KEYS[2])";
+    private static final String REFUND_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 1 then redis.call('incrby', KEYS[1], ARGV[1]) end " +
+            "redis.call('decr', KEYS[2]) " +
+            "return redis.call('incr', KEYS[3])";
+    // -1: 반영 중이거나 그 사이 DB가 바뀌어서 건너뜀, 0: 이미 같음, 1: 다시 맞춤
+    private static final String RESEED_SCRIPT =
+            "if tonumber(redis.call('get', KEYS[2]) or '0') > 0 then return -1 end " +
+            "if (redis.call('get', KEYS[3]) or '0') ~= ARGV[2] then return -1 end " +
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return 0 end " +
+            "redis.call('set', KEYS[1], ARGV[1]) " +
+            "return 1";
+
+    private final RedissonClient redissonClient;
+    private final AccountRepository accountRepository;
+    private final boolean enabled;
+    private final int reconcilePageSize;
+
+    private final Counter driftCounter;
+    private final Counter negativeCounter;
+
+    public BalanceReservationService(
+            RedissonClient redissonClient,
+            AccountRepository accountRepository,
+            ConcurrencyModeResolver concurrencyModeResolver,
+            MeterRegistry meterRegistry,
+            @Value("${account.reservation.reconcile-page-size:500}") int reconcilePageSize) {
+        this.redissonClient = redissonClient;
+        this.accountRepository = accountRepository;
+        this.enabled = concurrencyModeResolver.resolve(TransactionType.USE) == ConcurrencyMode.RESERVATION;
+        this.reconcilePageSize = reconcilePageSize;
+        this.driftCounter = Counter.builder("account.reservation.drift")
+                .description("DB 잔액과 달라서 다시 맞춘 카운터 수")
+                .register(meterRegistry);
+        this.negativeCounter = Counter.builder("account.reservation.negative")
+                .description("reconcile 중 발견한 음수 잔액 수")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 잔액을 확인하고 차감한다. 카운터가 없으면 DB에서 채운 뒤 한 번 더 시도한다.
+     *
+     * @return 차감 후 사용 가능 잔액
+     */
+    public long reserve(String accountNumber, long amount) {
+        long result = evalReserve(accountNumber, amount);
+        if (result == -2) {
+            reseed(accountNumber);
+            result = evalReserve(accountNumber, amount);
+        }
+        if (result == -2) {
+            throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        if (result == -1) {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        return result;
+    }
+
+    // 출금이 DB에 커밋된 뒤 호출
+    public void settle(String accountNumber) {
+        eval(SETTLE_SCRIPT, keys(pendingKey(accountNumber), seqKey(accountNumber)));
+    }
+
+    /**
+     * 입금을 반영 중으로 표시하고, 커밋되면 카운터에 더한다. 롤백되면 표시만 지운다.
+     * 트랜잭션 밖이면 바로 더한다.
+     */
+    public void creditAfterCommit(String accountNumber, long amount) {
+        beginCredit(accountNumber);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            credit(accountNumber, amount);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    credit(accountNumber, amount);
+                } else {
+                    abortCredit(accountNumber);
+                }
+            }
+        });
+    }
+
+    // 입금 커밋 전에 호출 (reseed가 이 계좌를 건너뛴다)
+    void beginCredit(String accountNumber) {
+        eval(BEGIN_CREDIT_SCRIPT, keys(pendingKey(accountNumber), seqKey(accountNumber)));
+    }
+
+    // beginCredit 한 입금이 DB에 커밋된 뒤 호출
+    void credit(String accountNumber, long amount) {
+        eval(CREDIT_SCRIPT,
+                keys(balanceKey(accountNumber), pendingKey(accountNumber), seqKey(accountNumber)),
+                String.valueOf(amount));
+    }
+
+    // beginCredit 한 입금이 롤백됐을 때 호출
+    void abortCredit(String accountNumber) {
+        eval(ABORT_CREDIT_SCRIPT, keys(pendingKey(accountNumber), seqKey(accountNumber)));
+    }
+
+    // DB 반영에 실패한 출금을 되돌린다.
+    public void refund(String accountNumber, long amount) {
+        eval(REFUND_SCRIPT,
+                keys(balanceKey(accountNumber), pendingKey(accountNumber), seqKey(accountNumber)),
+                String.valueOf(amount));
+    }
+
+    /**
+     * DB 잔액으로 카운터를 다시 맞춘다.
+     * DB를 읽기 전에 순번을 먼저 읽어두고, 그 사이 반영된 거래가 있으면 건너뛴다.
+     *
+     * @return true: 카운터를 바꿈
+     */
+    public boolean reseed(String accountNumber) {
+        String seq = readSeq(accountNumber);
+        return accountRepository.findByAccountNumber(accountNumber)
+                .map(account -> evalReseed(accountNumber, account.getBalance(), seq) > 0)
+                .orElse(false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        ReconcileResult result = reconcile();
+        log.info("Reservation counters seeded: {}", result);
+    }
+
+    @Scheduled(fixedDelayString = "${account.reservation.reconcile-interval:60000}",
+            initialDelayString = "${account.reservation.reconcile-interval:60000}")
+    public void scheduledReconcile() {
+        if (!enabled) {
+            return;
+        }
+        ReconcileResult result = reconcile();
+        if (result.getDrifted() > 0 || result.getNegative() > 0) {
+            log.warn("Reservation reconcile found problems: {}", result);
+        } else {
+            log.debug("Reservation reconcile: {}", result);
+        }
+    }
+
+    /**
+     * 모든 계좌를 페이지 단위로 훑으며 카운터를 DB 잔액에 맞추고, 음수 잔액이 없는지 확인한다.
+     * 트랜잭션 밖에서 호출되므로 페이지마다 DB에서 새로 읽는다.
+     */
+    public ReconcileResult reconcile() {
+        int checked = 0;
+        int drifted = 0;
+        int skipped = 0;
+        int negative = 0;
+        Page<Account> page = accountRepository.findAll(
+                PageRequest.of(0, reconcilePageSize, Sort.by("id")));
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            List<String> seqs = new ArrayList<>();
+            for (Account account : page) {
+                ids.add(account.getId());
+                seqs.add(readSeq(account.getAccountNumber()));
+            }
+            // 순번을 읽은 뒤의 DB 잔액
+            Map<Long, Account> fresh = accountRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Account::getId, Function.identity()));
+            for (int i = 0; i < ids.size(); i++) {
+                Account account = fresh.get(ids.get(i));
+                if (account == null) {
+                    continue;
+                }
+                checked++;
+                long result = evalReseed(account.getAccountNumber(), account.getBalance(), seqs.get(i));
+                if (result > 0) {
+                    drifted++;
+                    driftCounter.increment();
+                } else if (result < 0) {
+                    skipped++;
+                }
+                if (account.getBalance() < 0 || readBalance(account.getAccountNumber()) < 0) {
+                    negative++;
+                    negativeCounter.increment();
+                    log.error("Negative balance found. accountNumber: {}", account.getAccountNumber());
+                }
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = accountRepository.findAll(page.nextPageable());
+        }
+        return new ReconcileResult(checked, drifted, skipped, negative);
+    }
+
+    private long evalReserve(String accountNumber, long amount) {
+        return eval(RESERVE_SCRIPT, keys(balanceKey(accountNumber), pendingKey(accountNumber)),
+                String.valueOf(amount));
+    }
+
+    private long evalReseed(String accountNumber, long balance, String seq) {
+        return eval(RESEED_SCRIPT,
+                keys(balanceKey(accountNumber), pendingKey(accountNumber), seqKey(accountNumber)),
+                String.valueOf(balance), seq);
+    }
+
+    private long eval(String script, List<Object> keys, Object... args) {
+        Long result = redissonClient.getScript(StringCodec.INSTANCE)
+                .eval(RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER, keys, args);
+        return result == null ? 0 : result;
+    }
+
+    private String readSeq(String accountNumber) {
+        Object seq = redissonClient.getBucket(seqKey(accountNumber), StringCodec.INSTANCE).get();
+        return seq == null ? "0" : seq.toString();
+    }
+
+    private long readBalance(String accountNumber) {
+        Object balance = redissonClient.getBucket(balanceKey(accountNumber), StringCodec.INSTANCE).get();
+        return balance == null ? 0 : Long.parseLong(balance.toString());
+    }
+
+    private static List<Object> keys(String... keys) {
+        return Arrays.asList((Object[]) keys);
+    }
+
+    // 같은 계좌의 키는 같은 slot에 있어야 하므로 계좌번호를 hash tag로 묶는다.
+    private static String balanceKey(String accountNumber) {
+        return "ACBL{" + accountNumber + "}";
+    }
+
+    private static String pendingKey(String accountNumber) {
+        return "ACPD{" + accountNumber + "}";
+    }
+
+    private static String seqKey(String accountNumber) {
+        return "ACSQ{" + accountNumber + "}";
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class ReconcileResult {
+        private final int checked;
+        private final int drifted;
+        // 반영 중인 출금이 있어서 이번에는 맞추지 못한 계좌 수
+        private final int skipped;
+        private final int negative;
+
+        @Override
+        public String toString() {
+            return "checked=" + checked + ", drifted=" + drifted
+                    + ", skipped=" + skipped + ", negative=" + negative;
+        }
+    }
+}
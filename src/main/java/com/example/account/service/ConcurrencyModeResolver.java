@@ -0,0 +1,34 @@
+package com.example.account.service;
+
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.TransactionType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 거래 종류(엔드포인트)별 동시성 제어 방식
+ * account.transaction.concurrency-mode.use / cancel 이 없으면 default (기본 LOCK)
+ * RESERVATION은 use에만 쓸 수 있다.
+ */
+@Component
+public class ConcurrencyModeResolver {
+    private final ConcurrencyMode useMode;
+    private final ConcurrencyMode cancelMode;
+
+    public ConcurrencyModeResolver(
+            @Value("${account.transaction.concurrency-mode.use:${account.transaction.concurrency-mode.default:LOCK}}")
+            ConcurrencyMode useMode,
+            @Value("${account.transaction.concurrency-mode.cancel:${account.transaction.concurrency-mode.default:LOCK}}")
+            ConcurrencyMode cancelMode) {
+        if (cancelMode == ConcurrencyMode.RESERVATION) {
+            // 예약은 출금 전용이다.
+            throw new IllegalArgumentException("RESERVATION mode is only supported for use transactions.");
+        }
+        this.useMode = useMode;
+        this.cancelMode = cancelMode;
+    }
+
+    public ConcurrencyMode resolve(TransactionType transactionType) {
+        return transactionType == TransactionType.CANCEL ? cancelMode : useMode;
+    }
+}
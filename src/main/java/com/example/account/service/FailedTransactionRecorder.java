@@ -0,0 +1,155 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountView;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.FailureOverflowPolicy;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+
+/**
+ * 실패한 거래 기록
+ * 요청 스레드는 DB를 읽지 않고 계좌번호, 종류, 금액만 큐에 넣고 바로 에러 응답을 보낸다.
+ * flush 주기마다 큐에서 batchSize개씩 꺼내서, 계좌 id와 잔액을 in 쿼리 한 번으로 읽고 saveAll로 묶어서 insert 한다.
+ * (잔액은 flush 시점의 값이라서 실패한 시점과 flush-interval 만큼 차이가 날 수 있다.)
+ * 큐가 가득 차면 overflow-policy에 따라 버리거나 요청 스레드에서 바로 저장한다.
+ */
+@Slf4j
+@Component
+public class FailedTransactionRecorder {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Failure> queue;
+    private final FailureOverflowPolicy overflowPolicy;
+    private final int batchSize;
+
+    private final Counter droppedCounter;
+
+    public FailedTransactionRecorder(
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            TransactionIdGenerator transactionIdGenerator,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.failure-recorder.queue-capacity:10000}") int queueCapacity,
+            @Value("${account.failure-recorder.batch-size:500}") int batchSize,
+            @Value("${account.failure-recorder.overflow-policy:DROP_OLDEST}") FailureOverflowPolicy overflowPolicy) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.droppedCounter = Counter.builder("account.failure-recorder.dropped")
+                .description("큐가 가득 차서 버린 실패 거래 기록 수")
+                .register(meterRegistry);
+        Gauge.builder("account.failure-recorder.queue", queue, Collection::size)
+                .description("저장을 기다리는 실패 거래 기록 수")
+                .register(meterRegistry);
+    }
+
+    public void record(TransactionType transactionType, String accountNumber, Long amount) {
+        Failure failure = new Failure(transactionType, accountNumber, amount, LocalDateTime.now());
+        if (queue.offer(failure)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                // 꺼낸 자리를 다른 스레드가 먼저 채우면 새 기록을 버린다.
+                if (queue.poll() != null) {
+                    droppedCounter.increment();
+                }
+                if (!queue.offer(failure)) {
+                    droppedCounter.increment();
+                }
+                break;
+            case CALLER_RUNS:
+                write(Collections.singletonList(failure));
+                break;
+            default:
+                droppedCounter.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${account.failure-recorder.flush-interval:100}")
+    public void flush() {
+        List<Failure> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    void write(List<Failure> failures) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> accountNumbers = failures.stream()
+                        .map(Failure::getAccountNumber)
+                        .collect(Collectors.toSet());
+                Map<String, AccountView> accounts = accountRepository.findViewsByAccountNumberIn(accountNumbers)
+                        .stream()
+                        .collect(Collectors.toMap(AccountView::getAccountNumber, view -> view));
+                // 없는 계좌로 온 요청은 남길 계좌가 없다.
+                List<Transaction> transactions = failures.stream()
+                        .filter(failure -> accounts.containsKey(failure.getAccountNumber()))
+                        .map(failure -> toTransaction(failure, accounts.get(failure.getAccountNumber())))
+                        .collect(Collectors.toList());
+                // hibernate.jdbc.batch_size 단위로 묶어서 insert
+                transactionRepository.saveAll(transactions);
+            });
+        } catch (RuntimeException e) {
+            droppedCounter.increment(failures.size());
+            log.error("Failed to record {} failed transactions.", failures.size(), e);
+        }
+    }
+
+    private Transaction toTransaction(Failure failure, AccountView account) {
+        return Transaction.builder()
+                .transactionType(failure.getTransactionType())
+                .transactionResultType(TransactionResultType.F)
+                // 계좌는 id로 참조만 한다.
+                .account(accountRepository.getReferenceById(account.getId()))
+                .amount(failure.getAmount())
+                .transactionMessage("")
+                .balanceSnapshot(account.getBalance())
+                .transactionId(transactionIdGenerator.generate())
+                .transactedAt(failure.getFailedAt())
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class Failure {
+        private final TransactionType transactionType;
+        private final String accountNumber;
+        private final Long amount;
+        private final LocalDateTime failedAt;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.MessageDigest;
+
+/**
+ * Idempotency-Key 헤더 처리
+ * lock aspect보다 먼저 실행되어서, 이미 처리한 키는 lock과 DB를 거치지 않고 저장된 응답을 돌려준다.
+ * - 처음 보는 키: 처리 중 표시를 남기고 실행, 성공하면 응답을 저장 (실패하면 표시를 지워서 다시 시도할 수 있게)
+ * - 처리 중인 키: IDEMPOTENCY_KEY_IN_PROGRESS
+ * - 같은 키에 다른 요청 본문: IDEMPOTENCY_KEY_REUSED
+ * 키는 엔드포인트와 사용자(사용자 아이디가 없는 요청은 계좌)별로 나눠서, 다른 사용자가 같은 키를 써도 섞이지 않는다.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IdempotencyAspect {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 200;
+    // 저장 형식: 상태|요청 지문|응답 JSON
+    private static final String PENDING = "P";
+    private static final String DONE = "D";
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long pendingTtlMillis;
+
+    public IdempotencyAspect(
+            IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            @Value("${account.idempotency.ttl:86400000}") long ttlMillis,
+            @Value("${account.idempotency.pending-ttl:30000}") long pendingTtlMillis) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+        this.pendingTtlMillis = pendingTtlMillis;
+    }
+
+    @Around("@annotation(com.example.account.aop.Idempotent)")
+    public Object aroundMethod(ProceedingJoinPoint pjp) throws Throwable {
+        String idempotencyKey = currentIdempotencyKey();
+        if (idempotencyKey == null) {
+            return pjp.proceed();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+        // 엔드포인트, 사용자마다 키를 따로 쓴다.
+        String key = pjp.getSignature().getName() + ":" + scope(pjp.getArgs()) + ":" + idempotencyKey;
+        String fingerprint = fingerprint(pjp.getArgs());
+
+        String stored = idempotencyStore.get(key);
+        if (stored == null) {
+            if (idempotencyStore.putIfAbsent(key, PENDING + "|" + fingerprint + "|", pendingTtlMillis)) {
+                return proceedAndStore(pjp, key, fingerprint);
+            }
+            stored = idempotencyStore.get(key);
+            if (stored == null) {
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+            }
+        }
+        return replay(pjp, stored, fingerprint);
+    }
+
+    private Object proceedAndStore(ProceedingJoinPoint pjp, String key, String fingerprint) throws Throwable {
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable e) {
+            idempotencyStore.remove(key);
+            throw e;
+        }
+        idempotencyStore.put(key, DONE + "|" + fingerprint + "|" + objectMapper.writeValueAsString(result),
+                ttlMillis);
+        return result;
+    }
+
+    private Object replay(ProceedingJoinPoint pjp, String stored, String fingerprint) throws Exception {
+        String[] parts = stored.split("\\|", 3);
+        if (!parts[1].equals(fingerprint)) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        if (PENDING.equals(parts[0])) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+        }
+        log.debug("Replaying stored response for idempotency key.");
+        Class<?> returnType = ((MethodSignature) pjp.getSignature()).getReturnType();
+        return objectMapper.readValue(parts[2], returnType);
+    }
+
+    // 요청 본문의 SHA-256
+    private String fingerprint(Object[] args) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(objectMapper.writeValueAsBytes(args));
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // 취소 요청처럼 사용자 아이디가 없으면 계좌번호로 나눈다.
+    private static String scope(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof UseBalance.Request) {
+                return "u" + ((UseBalance.Request) arg).getUserId();
+            }
+            if (arg instanceof AccountLockIdInterface) {
+                return "a" + ((AccountLockIdInterface) arg).getAccountNumber();
+            }
+        }
+        return "-";
+    }
+
+    private static String currentIdempotencyKey() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        String key = ((ServletRequestAttributes) attributes).getRequest().getHeader(HEADER);
+        return key == null || key.isEmpty() ? null : key;
+    }
+}
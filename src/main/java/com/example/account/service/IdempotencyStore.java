@@ -0,0 +1,135 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency-Key 저장소
+ * - redis(RMapCache)에 TTL과 최대 개수를 두고 저장해서 여러 노드가 같이 본다.
+ * - 완료된 응답은 바뀌지 않으므로 노드 안의 LRU 캐시에도 두고 먼저 찾는다. (redis 왕복 없음)
+ * - redis에 연결할 수 없으면 노드 안의 캐시만으로 동작한다.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private final RMapCache<String, String> redisCache;
+    private final LocalCache localCache;
+
+    public IdempotencyStore(
+            RedissonClient redissonClient,
+            @Value("${account.idempotency.max-size:100000}") int maxSize,
+            @Value("${account.idempotency.local-max-size:10000}") int localMaxSize) {
+        this.redisCache = redissonClient.getMapCache("IDEMPOTENCY", StringCodec.INSTANCE);
+        this.localCache = new LocalCache(localMaxSize);
+        try {
+            redisCache.trySetMaxSize(maxSize);
+        } catch (RedisException e) {
+            log.warn("Failed to set idempotency cache max size.", e);
+        }
+    }
+
+    public String get(String key) {
+        String value = localCache.get(key);
+        if (value != null) {
+            return value;
+        }
+        try {
+            return redisCache.get(key);
+        } catch (RedisException e) {
+            log.warn("Idempotency store is unavailable, using local cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 처리 중 표시를 남긴다. 이미 키가 있으면 false
+     */
+    public boolean putIfAbsent(String key, String value, long ttlMillis) {
+        try {
+            return redisCache.putIfAbsent(key, value, ttlMillis, TimeUnit.MILLISECONDS) == null;
+        } catch (RedisException e) {
+            log.warn("Idempotency store is unavailable, using local cache: {}", e.getMessage());
+            return localCache.putIfAbsent(key, value, ttlMillis);
+        }
+    }
+
+    // 완료된 응답 저장
+    public void put(String key, String value, long ttlMillis) {
+        localCache.put(key, value, ttlMillis);
+        try {
+            redisCache.fastPut(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (RedisException e) {
+            log.warn("Idempotency store is unavailable, using local cache: {}", e.getMessage());
+        }
+    }
+
+    public void remove(String key) {
+        localCache.remove(key);
+        try {
+            redisCache.fastRemove(key);
+        } catch (RedisException e) {
+            log.warn("Idempotency store is unavailable, using local cache: {}", e.getMessage());
+        }
+    }
+
+    // 접근 순서 LRU + 항목별 만료 시간
+    private static class LocalCache {
+        private final Map<String, Entry> entries;
+
+        private LocalCache(int maxSize) {
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private synchronized String get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        private synchronized boolean putIfAbsent(String key, String value, long ttlMillis) {
+            if (get(key) != null) {
+                return false;
+            }
+            put(key, value, ttlMillis);
+            return true;
+        }
+
+        private synchronized void put(String key, String value, long ttlMillis) {
+            entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        }
+
+        private synchronized void remove(String key) {
+            entries.remove(key);
+        }
+    }
+
+    private static class Entry {
+        private final String value;
+        private final long expiresAt;
+
+        private Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
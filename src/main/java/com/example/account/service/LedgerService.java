@@ -0,0 +1,242 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.domain.LedgerPosting;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceSnapshotRepository;
+import com.example.account.repository.LedgerPostingRepository;
+import com.example.account.type.PostingType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 복식 원장 (추가 전용)
+ * - 이체마다 보내는 계좌 DEBIT, 받는 계좌 CREDIT 기록을 같은 트랜잭션에서 추가한다.
+ * - 계좌 개설 입금, 거래 취소 환불처럼 밖에서 들어오는 돈은 EXTERNAL_ACCOUNT_ID 계좌가 상대편이다.
+ * - 잔액 = 계좌별 스냅샷 + 스냅샷 뒤의 기록 (한 쿼리)
+ * - 주기적으로 snapshot-grace보다 오래된 기록을 스냅샷에 합친다.
+ *   기록은 바꾸지 않고, 어디까지 합쳤는지(postedBefore)를 스냅샷에 남긴다.
+ *   그래서 snapshot-grace는 가장 긴 트랜잭션과 노드 사이 시계 차이보다 길어야 한다.
+ *   (합친 뒤에 커밋된 그 이전 시각의 기록은 잔액에서 빠진다)
+ * deferred-credit이면 받는 계좌 row를 이체마다 update하지 않고 CREDIT 기록만 추가한다.
+ * 미뤄 둔 입금은 스냅샷에 합칠 때 계좌 lock을 잡고 한 번에 Account.balance에 더한다.
+ * (그 전까지 출금 가능 잔액에는 들어가지 않는다)
+ */
+@Slf4j
+@Service
+public class LedgerService {
+    public static final long EXTERNAL_ACCOUNT_ID = 0L;
+    // 스냅샷이 없는 계좌는 처음부터 합친다.
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final LockService lockService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final AccountReadModel accountReadModel;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean deferredCredit;
+    private final long snapshotGrace;
+    private final int snapshotBatchSize;
+    private final long lockWait;
+
+    private final Counter postingCounter;
+    private final Counter snapshotCounter;
+    // 이 시각 전의 기록은 빠짐없이 훑었다. (노드 메모리, 재시작하면 처음부터 한 번 훑는다)
+    private volatile LocalDateTime scannedBefore = BEGINNING;
+
+    public LedgerService(
+            LedgerPostingRepository ledgerPostingRepository,
+            BalanceSnapshotRepository balanceSnapshotRepository,
+            AccountRepository accountRepository,
+            LockService lockService,
+            TransactionIdGenerator transactionIdGenerator,
+            AccountReadModel accountReadModel,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.ledger.deferred-credit:false}") boolean deferredCredit,
+            @Value("${account.ledger.snapshot-grace:5000}") long snapshotGrace,
+            @Value("${account.ledger.snapshot-batch-size:500}") int snapshotBatchSize,
+            @Value("${account.ledger.lock-wait:1000}") long lockWait) {
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.lockService = lockService;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.accountReadModel = accountReadModel;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deferredCredit = deferredCredit;
+        this.snapshotGrace = snapshotGrace;
+        this.snapshotBatchSize = snapshotBatchSize;
+        this.lockWait = lockWait;
+        this.postingCounter = Counter.builder("account.ledger.postings")
+                .description("추가한 원장 기록 수")
+                .register(meterRegistry);
+        this.snapshotCounter = Counter.builder("account.ledger.snapshots")
+                .description("스냅샷에 합친 계좌 수")
+                .register(meterRegistry);
+    }
+
+    public boolean isDeferredCredit() {
+        return deferredCredit;
+    }
+
+    /**
+     * 계좌 개설 입금 (Account.balance에 이미 들어 있음)
+     */
+    public void open(Account account) {
+        append(transactionIdGenerator.generate(), EXTERNAL_ACCOUNT_ID, account.getId(), account.getBalance(), true);
+    }
+
+    /**
+     * 이체 (보내는 계좌의 Account.balance는 이미 줄어 있어야 한다)
+     * @param creditApplied 받는 계좌 Account.balance에 이미 더했는지
+     */
+    public void transfer(String transactionId, Account from, Account to, long amount, boolean creditApplied) {
+        append(transactionId, from.getId(), to.getId(), amount, creditApplied);
+    }
+
+    /**
+     * 거래 취소 환불 (Account.balance에 이미 더해 있음)
+     */
+    public void refund(String transactionId, Account account, long amount) {
+        append(transactionId, EXTERNAL_ACCOUNT_ID, account.getId(), amount, true);
+    }
+
+    public long getBalance(Long accountId) {
+        return ledgerPostingRepository.findBalance(accountId);
+    }
+
+    /**
+     * 아직 Account.balance에 들어가지 않은 입금 합계
+     */
+    public long getPendingCredit(Long accountId) {
+        return deferredCredit ? ledgerPostingRepository.sumPendingCredits(accountId) : 0L;
+    }
+
+    private void append(String transactionId, Long debitAccountId, Long creditAccountId,
+                        long amount, boolean creditApplied) {
+        LocalDateTime now = LocalDateTime.now();
+        ledgerPostingRepository.saveAll(Arrays.asList(
+                LedgerPosting.builder()
+                        .accountId(debitAccountId)
+                        .transactionId(transactionId)
+                        .postingType(PostingType.DEBIT)
+                        .amount(-amount)
+                        .applied(true)
+                        .postedAt(now)
+                        .build(),
+                LedgerPosting.builder()
+                        .accountId(creditAccountId)
+                        .transactionId(transactionId)
+                        .postingType(PostingType.CREDIT)
+                        .amount(amount)
+                        .applied(creditApplied)
+                        .postedAt(now)
+                        .build()));
+        postingCounter.increment(2);
+    }
+
+    @Scheduled(fixedDelayString = "${account.ledger.snapshot-interval:10000}",
+            initialDelayString = "${account.ledger.snapshot-interval:10000}")
+    public void scheduledSnapshot() {
+        int snapshots = snapshot();
+        if (snapshots > 0) {
+            log.debug("Ledger snapshots: {}", snapshots);
+        }
+    }
+
+    /**
+     * snapshot-grace보다 오래된 기록을 계좌별 스냅샷에 합친다.
+     * 한 번에 snapshot-batch-size 계좌까지, 다 합치면 다음에는 이번 구간 뒤부터 훑는다.
+     * @return 스냅샷을 갱신한 계좌 수
+     */
+    public int snapshot() {
+        LocalDateTime postedBefore = LocalDateTime.now().minusNanos(snapshotGrace * 1_000_000);
+        List<Long> accountIds = ledgerPostingRepository.findAccountIdsToSnapshot(
+                scannedBefore, postedBefore, PageRequest.of(0, snapshotBatchSize));
+        int snapshots = 0;
+        boolean skipped = false;
+        for (Long accountId : accountIds) {
+            try {
+                snapshot(accountId, postedBefore);
+                snapshots++;
+            } catch (AccountException e) {
+                // 계좌 lock을 얻지 못하면 다음 주기에
+                skipped = true;
+                log.debug("Skip ledger snapshot. accountId: {}, {}", accountId, e.getErrorCode());
+            } catch (RuntimeException e) {
+                skipped = true;
+                log.error("Ledger snapshot failed. accountId: {}", accountId, e);
+            }
+        }
+        if (!skipped && accountIds.size() < snapshotBatchSize) {
+            scannedBefore = postedBefore;
+        }
+        snapshotCounter.increment(snapshots);
+        return snapshots;
+    }
+
+    void snapshot(Long accountId, LocalDateTime postedBefore) {
+        // 미뤄 둔 입금을 Account.balance에 더할 때는 요청 처리와 같은 계좌 lock을 잡는다.
+        Optional<String> lockedAccountNumber = deferredCredit
+                ? accountRepository.findById(accountId).map(Account::getAccountNumber)
+                : Optional.empty();
+        lockedAccountNumber.ifPresent(accountNumber -> lockService.lock(accountNumber, lockWait));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                BalanceSnapshot snapshot = balanceSnapshotRepository.findByIdForUpdate(accountId)
+                        .orElseGet(() -> BalanceSnapshot.builder()
+                                .accountId(accountId)
+                                .balance(0L)
+                                .postedBefore(BEGINNING)
+                                .postingCount(0L)
+                                .build());
+                if (!snapshot.getPostedBefore().isBefore(postedBefore)) {
+                    // 다른 노드가 이미 합쳤다.
+                    return;
+                }
+                List<LedgerPosting> postings = ledgerPostingRepository.findPostingsToSnapshot(
+                        accountId, snapshot.getPostedBefore(), postedBefore);
+                if (postings.isEmpty()) {
+                    return;
+                }
+                long balance = snapshot.getBalance();
+                long pendingCredit = 0;
+                for (LedgerPosting posting : postings) {
+                    balance += posting.getAmount();
+                    if (!posting.getApplied()) {
+                        pendingCredit += posting.getAmount();
+                    }
+                }
+                if (pendingCredit > 0) {
+                    accountRepository.deposit(accountId, pendingCredit);
+                    accountReadModel.reloadAfterCommit(Collections.singletonList(accountId));
+                }
+                snapshot.setBalance(balance);
+                snapshot.setPostedBefore(postedBefore);
+                snapshot.setPostingCount(snapshot.getPostingCount() + postings.size());
+                snapshot.setSnapshotAt(LocalDateTime.now());
+                balanceSnapshotRepository.save(snapshot);
+            });
+        } finally {
+            lockedAccountNumber.ifPresent(lockService::unlock);
+        }
+    }
+}
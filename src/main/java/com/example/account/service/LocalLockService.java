@@ -0,0 +1,208 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 단일 노드용 lock
+ * 고정 크기 stripe 테이블에서 계좌번호 hash로 lock을 고른다.
+ * 서로 다른 계좌가 같은 stripe를 공유할 수는 있지만 테이블이 커지지는 않는다.
+ * 스레드 소유 개념이 없어서 다른 스레드에서 해제해도 된다.
+ * 기다리는 요청은 스레드가 아니라 stripe별 대기열의 CompletableFuture로 기다리고,
+ * unlock이 대기열 맨 앞의 future를 완료해서 lock을 넘겨준다. (대기 시간 초과는 타이머 스레드 하나가 처리)
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.type", havingValue = "local")
+public class LocalLockService implements LockService {
+    private final Stripe[] stripes;
+    private final int mask;
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    public LocalLockService(@Value("${account.lock.stripes:1024}") int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) { // 2의 거듭제곱으로 올림
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.timeoutScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "local-lock-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeoutScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public void lock(Collection<String> accountNumbers, long tryLockTime) {
+        log.debug("Trying local lock for accountNumbers: {}", accountNumbers);
+        CompletableFuture<Void> locked = lockAsync(accountNumbers, tryLockTime);
+        try {
+            locked.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 아직 기다리는 중이면 실패로 끝내고, 그 사이 획득했으면 바로 푼다.
+            if (!locked.completeExceptionally(lockFailed())) {
+                unlock(accountNumbers);
+            }
+            throw lockFailed();
+        } catch (ExecutionException e) {
+            log.error("=============Lock acquisition failed==============");
+            throw lockFailed();
+        }
+    }
+
+    @Override
+    public void unlock(Collection<String> accountNumbers) {
+        log.debug("Unlock local lock for accountNumbers:{}", accountNumbers);
+        int[] indexes = stripeIndexes(accountNumbers);
+        releaseAll(indexes, indexes.length);
+    }
+
+    @Override
+    public CompletableFuture<Void> lockAsync(
+            Collection<String> accountNumbers, long tryLockTime) {
+        int[] indexes = stripeIndexes(accountNumbers);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tryLockTime);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        acquireFrom(indexes, 0, deadline, result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(Collection<String> accountNumbers) {
+        unlock(accountNumbers);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * stripe 번호 순서대로 획득 -> 계좌번호가 달라도 같은 순서가 보장된다.
+     * 바로 잡히는 stripe는 이어서 잡고, 기다려야 하면 future가 완료될 때 다음 stripe부터 이어간다.
+     */
+    private void acquireFrom(int[] indexes, int from, long deadline, CompletableFuture<Void> result) {
+        int acquired = from;
+        while (acquired < indexes.length) {
+            if (result.isDone()) {
+                // 호출한 쪽이 포기했다. (sync lock의 interrupt)
+                releaseAll(indexes, acquired);
+                return;
+            }
+            CompletableFuture<Void> granted = stripes[indexes[acquired]].acquire(deadline);
+            if (!granted.isDone()) {
+                int waiting = acquired;
+                granted.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        releaseAll(indexes, waiting);
+                        result.completeExceptionally(lockFailed());
+                        return;
+                    }
+                    acquireFrom(indexes, waiting + 1, deadline, result);
+                });
+                return;
+            }
+            if (granted.isCompletedExceptionally()) {
+                releaseAll(indexes, acquired);
+                result.completeExceptionally(lockFailed());
+                return;
+            }
+            acquired++;
+        }
+        if (!result.complete(null)) {
+            releaseAll(indexes, indexes.length);
+        }
+    }
+
+    private void releaseAll(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].release();
+        }
+    }
+
+    // 같은 stripe에 걸리는 계좌는 한번만 잡는다.
+    private int[] stripeIndexes(Collection<String> accountNumbers) {
+        return accountNumbers.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    int stripeIndex(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static AccountException lockFailed() {
+        return new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+    }
+
+    /**
+     * lock 하나와 FIFO 대기열
+     * 넘겨줄 때 future.complete가 false면(시간 초과로 이미 실패) 다음 대기자에게 넘긴다.
+     */
+    private final class Stripe {
+        private boolean held;
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        CompletableFuture<Void> acquire(long deadline) {
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            long remaining = deadline - System.nanoTime();
+            synchronized (this) {
+                if (!held) {
+                    held = true;
+                    waiter.complete(null);
+                    return waiter;
+                }
+                if (remaining <= 0) {
+                    waiter.completeExceptionally(lockFailed());
+                    return waiter;
+                }
+                waiters.addLast(waiter);
+            }
+            ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> {
+                if (waiter.completeExceptionally(lockFailed())) {
+                    synchronized (this) {
+                        waiters.remove(waiter);
+                    }
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+            waiter.whenComplete((ignored, error) -> timeout.cancel(false));
+            return waiter;
+        }
+
+        void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    next = waiters.pollFirst();
+                    if (next == null) {
+                        held = false;
+                        return;
+                    }
+                }
+                // held는 그대로 두고 다음 대기자에게 넘긴다.
+                // 완료하면 대기자의 다음 단계가 이 스레드에서 돌기 때문에 monitor 밖에서 완료한다.
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+}
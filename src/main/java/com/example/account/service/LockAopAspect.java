@@ -1,33 +1,165 @@
 package com.example.account.service;
 
 import com.example.account.aop.AccountLockIdInterface;
-import lombok.RequiredArgsConstructor;
+import com.example.account.aop.Accountlock;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.ErrorCode;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 @Aspect
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class LockAopAspect {
     private final LockService lockService;
-    @Around("@annotation(com.example.account.aop.Accountlock)" +
+    private final AccountWaitQueue accountWaitQueue;
+    private final ConcurrencyModeResolver concurrencyModeResolver;
+    private final Executor transactionExecutor;
+
+    public LockAopAspect(LockService lockService,
+                         AccountWaitQueue accountWaitQueue,
+                         ConcurrencyModeResolver concurrencyModeResolver,
+                         @Qualifier("transactionExecutor") Executor transactionExecutor) {
+        this.lockService = lockService;
+        this.accountWaitQueue = accountWaitQueue;
+        this.concurrencyModeResolver = concurrencyModeResolver;
+        this.transactionExecutor = transactionExecutor;
+    }
+
+    @Around("@annotation(accountlock)" +
             "&& args(request)")
     public Object aroundMethod(
             ProceedingJoinPoint pjp,
+            Accountlock accountlock,
             AccountLockIdInterface request) throws Throwable {
-        // lock 취득 시도
-        lockService.lock(request.getAccountNumber());
+        ConcurrencyMode mode = concurrencyModeResolver.resolve(accountlock.transactionType());
+        if (mode == ConcurrencyMode.OPTIMISTIC || mode == ConcurrencyMode.DB_LOCK
+                || mode == ConcurrencyMode.RESERVATION) {
+            // OPTIMISTIC: 서비스 호출을 version 충돌 시 재시도 (OptimisticRetryAspect)
+            // DB_LOCK, RESERVATION: 서비스에서 SELECT ... FOR UPDATE로 row lock 또는 redis Lua로 잔액 차감
+            return isAsync(pjp) ? supplyAsync(pjp::proceed) : pjp.proceed();
+        }
+        // lock 취득 시도 (이체라면 받는 계좌까지 함께)
+        Set<String> accountNumbers = request.getAccountNumbers();
+        if (isAsync(pjp)) {
+            return aroundAsyncMethod(pjp, accountlock, accountNumbers);
+        }
+        // 같은 계좌 요청은 대기열에서 차례를 기다린 뒤 lock 시도
+        accountWaitQueue.await(accountNumbers);
+        try{
+            lockService.lock(accountNumbers, accountlock.tryLockTime());
+        }catch (RuntimeException e){
+            accountWaitQueue.release(accountNumbers);
+            throw e;
+        }
         try{
             // before
             return pjp.proceed();
             // after
         }finally {
+            // 다음 대기자에게 차례를 먼저 넘겨서, lock을 풀기 전에 near lock 대기열에 서게 한다.
+            // (redis lock을 풀지 않고 같은 노드의 다음 요청에게 넘겨줄 수 있음)
+            accountWaitQueue.release(accountNumbers);
             // lock 해제
-            lockService.unlock(request.getAccountNumber());
+            lockService.unlock(accountNumbers);
+        }
+    }
+
+    /**
+     * CompletableFuture를 반환하는 메서드는 요청 스레드에서 기다리지 않는다.
+     * 대기열 차례와 lock을 비동기로 얻은 뒤 transactionExecutor에서 메서드를 실행하고, 끝나면 lock을 푼다.
+     */
+    private CompletableFuture<Object> aroundAsyncMethod(
+            ProceedingJoinPoint pjp, Accountlock accountlock, Set<String> accountNumbers) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        accountWaitQueue.acquire(accountNumbers)
+                .thenCompose(admitted -> lockService.lockAsync(
+                        accountNumbers, accountlock.tryLockTime())
+                        .whenComplete((locked, lockError) -> {
+                            if (lockError != null) {
+                                accountWaitQueue.release(accountNumbers);
+                            }
+                        }))
+                .whenComplete((locked, lockError) -> {
+                    if (lockError != null) {
+                        result.completeExceptionally(unwrap(lockError));
+                        return;
+                    }
+                    try {
+                        transactionExecutor.execute(() ->
+                                proceedAsync(pjp).whenComplete((value, error) -> {
+                                    accountWaitQueue.release(accountNumbers);
+                                    lockService.unlockAsync(accountNumbers);
+                                    if (error != null) {
+                                        result.completeExceptionally(unwrap(error));
+                                    } else {
+                                        result.complete(value);
+                                    }
+                                }));
+                    } catch (RejectedExecutionException e) {
+                        log.error("Transaction executor is full.");
+                        accountWaitQueue.release(accountNumbers);
+                        lockService.unlockAsync(accountNumbers);
+                        result.completeExceptionally(
+                                new AccountException(ErrorCode.TRANSACTION_EXECUTOR_BUSY));
+                    }
+                });
+        return result;
+    }
+
+    // lock 없이 transactionExecutor에서 실행
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> supplyAsync(Invocation invocation) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return (CompletableFuture<Object>) invocation.proceed();
+                } catch (Throwable e) {
+                    throw new CompletionException(e);
+                }
+            }, transactionExecutor).thenCompose(future -> future);
+        } catch (RejectedExecutionException e) {
+            log.error("Transaction executor is full.");
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new AccountException(ErrorCode.TRANSACTION_EXECUTOR_BUSY));
+            return failed;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> proceedAsync(ProceedingJoinPoint pjp) {
+        try {
+            return (CompletableFuture<Object>) pjp.proceed();
+        } catch (Throwable e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
         }
     }
+
+    private static boolean isAsync(ProceedingJoinPoint pjp) {
+        return CompletableFuture.class.isAssignableFrom(
+                ((MethodSignature) pjp.getSignature()).getReturnType());
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object proceed() throws Throwable;
+    }
 }
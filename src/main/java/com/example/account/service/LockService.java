@@ -1,43 +1,41 @@
 package com.example.account.service;
 
-import com.example.account.exception.AccountException;
-import com.example.account.type.ErrorCode;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
-import org.springframework.stereotype.Service;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
-import java.util.concurrent.TimeUnit;
+/**
+ * 계좌 단위 lock 전략
+ * - redis : Redisson 분산 lock (여러 노드로 배포할 때)
+ * - local : JVM 내부 striped lock (단일 노드일 때, redis 왕복 없음)
+ * account.lock.type 설정값으로 구현체를 선택한다.
+ */
+public interface LockService {
+    /**
+     * 여러 계좌를 한번에 lock 한다.
+     * 구현체마다 정해진 순서로 획득하므로 서로 반대 방향 이체가 겹쳐도 deadlock이 생기지 않는다.
+     * 일부만 획득한 상태로 실패하면 획득한 lock은 모두 풀고 ACCOUNT_TRANSACTION_LOCK을 던진다.
+     *
+     * @param tryLockTime lock 획득을 기다리는 최대 시간(ms)
+     */
+    void lock(Collection<String> accountNumbers, long tryLockTime);
 
-@Slf4j
-@Service
-@RequiredArgsConstructor // 자동으로 final field 주입.
-public class LockService {
-    private final RedissonClient redissonClient;
+    void unlock(Collection<String> accountNumbers);
 
-    public void lock(String accountNumber){
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber)); // 계좌번호를 lock의 키로
-        log.debug("Trying lock for accountNumber: {}", accountNumber);
-        try{
-            boolean isLock = lock.tryLock(1,15, TimeUnit.SECONDS);
-            if(!isLock){
-                log.error("=============Lock acquisition failed==============");
-                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
-            }
-        }catch (AccountException e){
-            throw e;
-        }catch(Exception e){
-            log.error("Redis lock failed.",e);
-        }
-    }
+    /**
+     * 요청 스레드를 붙잡지 않고 lock을 획득한다.
+     * 획득한 스레드와 해제하는 스레드가 달라도 된다.
+     * 획득 실패 시 ACCOUNT_TRANSACTION_LOCK으로 완료된다.
+     */
+    CompletableFuture<Void> lockAsync(Collection<String> accountNumbers, long tryLockTime);
+
+    CompletableFuture<Void> unlockAsync(Collection<String> accountNumbers);
 
-    public void unlock(String accountNumber){
-        log.debug("Unlock for accountNumber:{}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+    default void lock(String accountNumber, long tryLockTime) {
+        lock(Collections.singleton(accountNumber), tryLockTime);
     }
 
-    private static String getLockKey(String accountNumber) {
-        return "ACLK" + accountNumber;
+    default void unlock(String accountNumber) {
+        unlock(Collections.singleton(accountNumber));
     }
 }
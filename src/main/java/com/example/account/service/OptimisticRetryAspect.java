@@ -0,0 +1,46 @@
+package com.example.account.service;
+
+import com.example.account.aop.RetryOnConflict;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * version 충돌 재시도
+ * @Transactional 서비스 메서드 바깥에서 감싸서, 매 시도가 새 트랜잭션이 되게 한다.
+ * (컨트롤러 단위로 재시도하면 서비스 밖의 일까지 다시 하게 된다)
+ * - OPTIMISTIC: lock 없이 실행하므로 재시도
+ * - LOCK + RESERVATION: ReservationWriter가 lock 없이 잔액을 update 하므로 lock을 쥔 채로 재시도
+ * 이미 트랜잭션 안에서 불렸으면 바깥 호출이 재시도한다.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class OptimisticRetryAspect {
+    private final ConcurrencyModeResolver concurrencyModeResolver;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !isRetryEnabled(retryOnConflict.transactionType())) {
+            return pjp.proceed();
+        }
+        return optimisticRetryExecutor.proceed(pjp);
+    }
+
+    private boolean isRetryEnabled(TransactionType transactionType) {
+        ConcurrencyMode mode = concurrencyModeResolver.resolve(transactionType);
+        return mode == ConcurrencyMode.OPTIMISTIC
+                || (mode == ConcurrencyMode.LOCK
+                && concurrencyModeResolver.resolve(TransactionType.USE) == ConcurrencyMode.RESERVATION);
+    }
+}
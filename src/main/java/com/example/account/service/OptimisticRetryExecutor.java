@@ -0,0 +1,70 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * OPTIMISTIC 모드 실행기
+ * lock 없이 실행하고 Account.version 충돌이 나면 jitter가 섞인 지수 backoff 후 다시 실행한다.
+ * 매 시도는 새 트랜잭션이다. (OptimisticRetryAspect가 @Transactional 서비스 호출 바깥에서 부른다)
+ * 최대 시도 횟수를 넘기면 ACCOUNT_TRANSACTION_LOCK
+ */
+@Slf4j
+@Component
+public class OptimisticRetryExecutor {
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final Counter retryCounter;
+    private final Counter exhaustedCounter;
+
+    public OptimisticRetryExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${account.transaction.optimistic.max-attempts:5}") int maxAttempts,
+            @Value("${account.transaction.optimistic.base-backoff:5}") long baseBackoffMillis,
+            @Value("${account.transaction.optimistic.max-backoff:100}") long maxBackoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryCounter = Counter.builder("account.optimistic.retry")
+                .description("version 충돌로 다시 실행한 횟수")
+                .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("account.optimistic.exhausted")
+                .description("재시도를 모두 써서 실패한 요청 수")
+                .register(meterRegistry);
+    }
+
+    public Object proceed(ProceedingJoinPoint pjp) throws Throwable {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return pjp.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    exhaustedCounter.increment();
+                    log.error("Optimistic lock retry exhausted after {} attempts.", attempt);
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                retryCounter.increment();
+                log.debug("Optimistic lock conflict, retry attempt {}", attempt);
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    // full jitter: 0 ~ min(max, base * 2^(attempt-1))
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
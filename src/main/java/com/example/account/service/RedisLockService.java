@@ -0,0 +1,285 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 2단계 lock (노드 안의 near lock + Redisson 분산 lock)
+ * - 계좌마다 노드 안에서 한 요청만 redis lock을 시도하고, 나머지는 near lock 대기열에서 FIFO로 기다린다.
+ * - redis lock은 노드 단위로 소유하므로, 대기자가 있으면 redis에 unlock/lock 하지 않고 바로 넘겨준다.
+ * - 다른 노드도 차례를 얻을 수 있도록 max-local-handoffs번 넘겨줬거나 lease가 절반 넘게 지났으면 redis lock을 놓는다.
+ * - 넘겨줄 때마다 lease를 lease-time으로 다시 늘린다. (다음 요청이 남은 lease보다 오래 쥐어도 만료되지 않게)
+ * - RLock 핸들은 계좌가 사용 중인 동안 재사용한다.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.type", havingValue = "redis", matchIfMissing = true)
+public class RedisLockService implements LockService {
+    // 노드 단위 lock 소유자 (같은 노드 안의 순서는 near lock이 정하므로 스레드를 구분하지 않는다.)
+    private static final long NODE_OWNER_ID = -1L;
+
+    private final RedissonClient redissonClient;
+    private final long leaseTime;
+    private final int maxLocalHandoffs;
+    private final ConcurrentHashMap<String, NearLock> nearLocks = new ConcurrentHashMap<>();
+
+    public RedisLockService(
+            RedissonClient redissonClient,
+            @Value("${account.lock.lease-time:15000}") long leaseTime,
+            @Value("${account.lock.max-local-handoffs:8}") int maxLocalHandoffs) {
+        this.redissonClient = redissonClient;
+        this.leaseTime = leaseTime;
+        this.maxLocalHandoffs = maxLocalHandoffs;
+    }
+
+    @Override
+    public void lock(Collection<String> accountNumbers, long tryLockTime){
+        log.debug("Trying lock for accountNumbers: {}", accountNumbers);
+        try{
+            lockAsync(accountNumbers, tryLockTime).join();
+        }catch (CompletionException e){
+            if (e.getCause() instanceof AccountException) {
+                throw (AccountException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void unlock(Collection<String> accountNumbers){
+        log.debug("Unlock for accountNumbers:{}", accountNumbers);
+        unlockAsync(accountNumbers).join();
+    }
+
+    /**
+     * 계좌번호(키) 순서대로 하나씩 얻는다. 하나라도 실패하면 얻은 lock은 되돌린다.
+     */
+    @Override
+    public CompletableFuture<Void> lockAsync(Collection<String> accountNumbers, long tryLockTime) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tryLockTime);
+        return lockFrom(getLockKeys(accountNumbers), 0, deadline);
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(Collection<String> accountNumbers) {
+        List<String> keys = getLockKeys(accountNumbers);
+        CompletableFuture<?>[] unlocks = new CompletableFuture<?>[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            unlocks[i] = unlockKey(keys.get(i));
+        }
+        return CompletableFuture.allOf(unlocks);
+    }
+
+    private CompletableFuture<Void> lockFrom(List<String> keys, int index, long deadline) {
+        if (index == keys.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = keys.get(index);
+        return lockKey(key, deadline).thenCompose(v ->
+                lockFrom(keys, index + 1, deadline).whenComplete((r, e) -> {
+                    if (e != null) {
+                        unlockKey(key);
+                    }
+                }));
+    }
+
+    private CompletableFuture<Void> lockKey(String key, long deadline) {
+        CompletableFuture<Boolean> ticket = new CompletableFuture<>();
+        NearLock[] nearLock = new NearLock[1];
+        boolean[] first = {false};
+        nearLocks.compute(key, (k, n) -> {
+            if (n == null) {
+                n = new NearLock(redissonClient.getLock(k));
+            }
+            if (!n.held) {
+                n.held = true;
+                first[0] = true;
+            } else {
+                n.waiters.add(ticket);
+            }
+            nearLock[0] = n;
+            return n;
+        });
+        if (first[0]) {
+            return lockRemote(key, nearLock[0].lock, deadline);
+        }
+
+        // 앞 요청이 끝나면 redis lock을 쥔 채로(true) 또는 near lock 차례만(false) 넘겨받는다.
+        return ticket.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                .handle((remoteHeld, e) -> {
+                    if (e instanceof TimeoutException) {
+                        removeWaiter(key, ticket);
+                        log.error("=============Lock acquisition failed==============");
+                        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    }
+                    return remoteHeld;
+                })
+                .thenCompose(remoteHeld -> remoteHeld
+                        ? CompletableFuture.completedFuture(null)
+                        : lockRemote(key, nearLock[0].lock, deadline));
+    }
+
+    private CompletableFuture<Void> lockRemote(String key, RLock lock, long deadline) {
+        long waitTime = TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime()));
+        return lock.tryLockAsync(waitTime, leaseTime, TimeUnit.MILLISECONDS, NODE_OWNER_ID)
+                .toCompletableFuture()
+                .handle((isLock, e) -> {
+                    if (e == null && isLock) {
+                        nearLocks.computeIfPresent(key, (k, n) -> {
+                            n.remoteHeld = true;
+                            n.remoteAcquiredAt = System.nanoTime();
+                            n.handoffs = 0;
+                            return n;
+                        });
+                        return null;
+                    }
+                    if (e != null) {
+                        log.error("Redis lock failed.", e);
+                    } else {
+                        log.error("=============Lock acquisition failed==============");
+                    }
+                    unlockKey(key);
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                });
+    }
+
+    /**
+     * 대기자가 있으면 redis lock을 쥔 채로 넘겨준다.
+     * 넘겨줄 수 없으면 redis lock을 놓은 뒤에 다음 대기자에게 near lock 차례만 넘긴다.
+     */
+    private CompletableFuture<Void> unlockKey(String key) {
+        NearLock[] nearLock = new NearLock[1];
+        CompletableFuture<Boolean>[] next = new CompletableFuture[1];
+        boolean[] handOff = {false};
+        boolean[] unlockRemote = {false};
+        nearLocks.computeIfPresent(key, (k, n) -> {
+            nearLock[0] = n;
+            next[0] = n.waiters.poll();
+            if (next[0] != null && canHandOff(n)) {
+                n.handoffs++;
+                handOff[0] = true;
+                return n;
+            }
+            unlockRemote[0] = n.remoteHeld;
+            n.remoteHeld = false;
+            n.handoffs = 0;
+            if (next[0] == null) {
+                // 아무도 기다리지 않으면 계좌를 비운다.
+                return null;
+            }
+            return n;
+        });
+        if (nearLock[0] == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (handOff[0]) {
+            return extendLease(key, nearLock[0].lock).thenCompose(extended -> {
+                if (!extended) {
+                    // lease를 늘리지 못했으면 redis lock을 놓고 차례만 넘긴다.
+                    return releaseRemote(nearLock[0].lock).thenCompose(v ->
+                            next[0].complete(false) ? CompletableFuture.completedFuture(null) : unlockKey(key));
+                }
+                // 이미 시간 초과된 대기자였다면 다시 다음 대기자를 찾는다.
+                return next[0].complete(true) ? CompletableFuture.completedFuture(null) : unlockKey(key);
+            });
+        }
+
+        CompletableFuture<Void> unlocked = unlockRemote[0]
+                ? releaseRemote(nearLock[0].lock)
+                : CompletableFuture.completedFuture(null);
+        if (next[0] == null) {
+            return unlocked;
+        }
+        return unlocked.thenCompose(v ->
+                next[0].complete(false) ? CompletableFuture.completedFuture(null) : unlockKey(key));
+    }
+
+    /**
+     * 넘겨받는 요청이 lease-time 전체를 쓸 수 있게 lock key의 만료 시간을 다시 설정한다.
+     * 실패하면(redis 오류, key가 이미 없음) 쥐고 있다고 볼 수 없으므로 false
+     */
+    private CompletableFuture<Boolean> extendLease(String key, RLock lock) {
+        return lock.expireAsync(leaseTime, TimeUnit.MILLISECONDS).toCompletableFuture()
+                .exceptionally(e -> {
+                    log.error("Redis lease extension failed.", e);
+                    return false;
+                })
+                .thenApply(extended -> {
+                    nearLocks.computeIfPresent(key, (k, n) -> {
+                        if (extended) {
+                            n.remoteAcquiredAt = System.nanoTime();
+                        } else {
+                            n.remoteHeld = false;
+                            n.handoffs = 0;
+                        }
+                        return n;
+                    });
+                    return extended;
+                });
+    }
+
+    private CompletableFuture<Void> releaseRemote(RLock lock) {
+        return lock.unlockAsync(NODE_OWNER_ID).toCompletableFuture()
+                .exceptionally(e -> {
+                    log.error("Redis unlock failed.", e);
+                    return null;
+                });
+    }
+
+    // lease가 절반 이상 남아 있을 때만 넘겨준다. (넘겨주면서 lease를 다시 늘린다)
+    private boolean canHandOff(NearLock n) {
+        return n.remoteHeld
+                && n.handoffs < maxLocalHandoffs
+                && System.nanoTime() - n.remoteAcquiredAt < TimeUnit.MILLISECONDS.toNanos(leaseTime) / 2;
+    }
+
+    private void removeWaiter(String key, CompletableFuture<Boolean> ticket) {
+        nearLocks.computeIfPresent(key, (k, n) -> {
+            n.waiters.remove(ticket);
+            return n;
+        });
+    }
+
+    private static List<String> getLockKeys(Collection<String> accountNumbers) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String accountNumber : accountNumbers) {
+            keys.add(getLockKey(accountNumber));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private static String getLockKey(String accountNumber) {
+        return "ACLK" + accountNumber;
+    }
+
+    // held가 true인 동안은 이 노드의 한 요청이 계좌를 쓰고 있다.
+    private static class NearLock {
+        private final RLock lock;
+        private boolean held;
+        private boolean remoteHeld;
+        private long remoteAcquiredAt;
+        private int handoffs;
+        private final ArrayDeque<CompletableFuture<Boolean>> waiters = new ArrayDeque<>();
+
+        private NearLock(RLock lock) {
+            this.lock = lock;
+        }
+    }
+}
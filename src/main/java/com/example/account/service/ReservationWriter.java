@@ -0,0 +1,105 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * RESERVATION 모드에서 redis로 차감한 거래를 DB에 비동기로 반영한다.
+ * - 출금은 잔액이 충분할 때만 줄이는 조건부 update라서 DB 잔액은 음수가 되지 않는다.
+ * - 커밋되면 redis에 출금 반영(settle)과 받는 계좌 입금(credit)을 알린다.
+ *   입금은 커밋 전에 반영 중으로 표시해서, 그 사이의 reseed가 받는 계좌 카운터를 덮지 않게 한다.
+ * - 실패하면 redis 차감을 되돌리고(refund) 카운터를 DB 잔액으로 다시 맞춘다.
+ */
+@Slf4j
+@Component
+public class ReservationWriter {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceReservationService balanceReservationService;
+    private final TransactionRecordCache transactionRecordCache;
+    private final LedgerService ledgerService;
+    private final AccountReadModel accountReadModel;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor reservationWriteExecutor;
+
+    private final Counter failedCounter;
+
+    public ReservationWriter(AccountRepository accountRepository,
+                             TransactionRepository transactionRepository,
+                             BalanceReservationService balanceReservationService,
+                             TransactionRecordCache transactionRecordCache,
+                             LedgerService ledgerService,
+                             AccountReadModel accountReadModel,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("reservationWriteExecutor") Executor reservationWriteExecutor) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceReservationService = balanceReservationService;
+        this.transactionRecordCache = transactionRecordCache;
+        this.ledgerService = ledgerService;
+        this.accountReadModel = accountReadModel;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationWriteExecutor = reservationWriteExecutor;
+        this.failedCounter = Counter.builder("account.reservation.write.failed")
+                .description("DB 반영에 실패해서 되돌린 예약 거래 수")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 반영 작업을 큐에 넣는다. 큐가 가득 차면 차감을 되돌리고 TRANSACTION_EXECUTOR_BUSY
+     */
+    public void submit(Transaction transaction, Account toAccount) {
+        try {
+            reservationWriteExecutor.execute(() -> write(transaction, toAccount));
+        } catch (RejectedExecutionException e) {
+            log.error("Reservation write queue is full.");
+            balanceReservationService.refund(
+                    transaction.getAccount().getAccountNumber(), transaction.getAmount());
+            throw new AccountException(ErrorCode.TRANSACTION_EXECUTOR_BUSY);
+        }
+    }
+
+    void write(Transaction transaction, Account toAccount) {
+        String accountNumber = transaction.getAccount().getAccountNumber();
+        Long amount = transaction.getAmount();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (accountRepository.withdrawIfSufficient(transaction.getAccount().getId(), amount) == 0) {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }
+                accountRepository.deposit(toAccount.getId(), amount);
+                balanceReservationService.creditAfterCommit(toAccount.getAccountNumber(), amount);
+                ledgerService.transfer(transaction.getTransactionId(), transaction.getAccount(), toAccount,
+                        amount, true);
+                transactionRepository.save(transaction);
+                transactionRecordCache.putAfterCommit(Collections.singletonList(transaction));
+                accountReadModel.reloadAfterCommit(
+                        Arrays.asList(transaction.getAccount().getId(), toAccount.getId()));
+            });
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.error("Reservation write failed. transactionId: {}", transaction.getTransactionId(), e);
+            balanceReservationService.refund(accountNumber, amount);
+            balanceReservationService.reseed(accountNumber);
+            return;
+        }
+        balanceReservationService.settle(accountNumber);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.account.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시간순 거래 번호 (snowflake)
+ * - 63비트 = 밀리초 타임스탬프 41비트 + 노드 id 10비트 + 순번 12비트
+ * - Crockford base32 고정 13자리라서 문자열 순서가 생성 순서와 같다. (index에 뒤로만 추가됨)
+ * - lock 없이 CAS 한 번으로 (타임스탬프, 순번)을 올린다.
+ *   같은 ms에 순번이 넘치거나 시계가 뒤로 가면 앞서 나간 타임스탬프를 그대로 이어서 쓴다.
+ */
+@Component
+@ConditionalOnProperty(name = "account.transaction-id.type", havingValue = "snowflake", matchIfMissing = true)
+public class SnowflakeTransactionIdGenerator implements TransactionIdGenerator {
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    public static final int LENGTH = 13;
+    // 문자 코드 순서대로 정렬되어 있다.
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeBits;
+    // (타임스탬프 << SEQUENCE_BITS) | 순번
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeTransactionIdGenerator(@Value("${account.transaction-id.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    @Override
+    public String generate() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        // 순번이 넘치면 타임스탬프 자리로 올림된다.
+        long next = state.accumulateAndGet(now, (last, min) -> Math.max(min, last + 1));
+        long timestamp = next >>> SEQUENCE_BITS;
+        return encode((timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK));
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
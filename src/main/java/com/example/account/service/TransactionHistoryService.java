@@ -0,0 +1,113 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.TransactionHistoryItem;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 계좌별 거래 내역 (최근 거래부터)
+ * (transactedAt, id) keyset 페이지: 앞 페이지 마지막 거래보다 오래된 거래부터 읽으므로
+ * 몇 번째 페이지든 (account_id, transacted_at, id) index에서 size개만 읽는다. (OFFSET 없음)
+ * journal에서 아직 DB에 넣지 않은 거래는 drain 뒤에 보인다.
+ */
+@Service
+public class TransactionHistoryService {
+    private static final String CURSOR_SEPARATOR = ",";
+
+    private final TransactionRepository transactionRepository;
+    private final AccountNumberFilter accountNumberFilter;
+    private final AccountMetadataCache accountMetadataCache;
+    private final int maxPageSize;
+
+    public TransactionHistoryService(
+            TransactionRepository transactionRepository,
+            AccountNumberFilter accountNumberFilter,
+            AccountMetadataCache accountMetadataCache,
+            @Value("${account.history.max-page-size:100}") int maxPageSize) {
+        this.transactionRepository = transactionRepository;
+        this.accountNumberFilter = accountNumberFilter;
+        this.accountMetadataCache = accountMetadataCache;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * @param cursor 앞 페이지의 nextCursor, 첫 페이지면 null
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistory getTransactionHistory(
+            String accountNumber, TransactionType type, TransactionResultType result,
+            String cursor, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+        if (!accountNumberFilter.mightContain(accountNumber)) {
+            throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        AccountMetadata account = accountMetadataCache.get(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        // 다음 페이지가 있는지 알기 위해 하나 더 읽는다.
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionHistoryItem> items;
+        if (cursor == null) {
+            items = transactionRepository.findHistory(account.getId(), type, result, limit);
+        } else {
+            Cursor after = decode(cursor);
+            items = transactionRepository.findHistoryBefore(account.getId(), type, result,
+                    after.getTransactedAt(), after.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = encode(items.get(size - 1));
+        }
+        return TransactionHistory.builder()
+                .accountNumber(accountNumber)
+                .transactions(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    static String encode(TransactionHistoryItem item) {
+        String value = item.getTransactedAt() + CURSOR_SEPARATOR + item.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(CURSOR_SEPARATOR);
+            return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Cursor {
+        private final LocalDateTime transactedAt;
+        private final Long id;
+    }
+}
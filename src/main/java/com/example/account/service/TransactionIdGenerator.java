@@ -0,0 +1,9 @@
+package com.example.account.service;
+
+/**
+ * 거래 번호 생성기
+ * account.transaction-id.type 으로 구현을 고른다. (snowflake: 시간순, uuid: 이전 방식)
+ */
+public interface TransactionIdGenerator {
+    String generate();
+}
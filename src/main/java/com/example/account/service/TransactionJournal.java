@@ -0,0 +1,405 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 거래 기록 append-only 로그 (memory-mapped 세그먼트 파일)
+ * - 레코드: [본문 길이 int][crc32 int][본문], 길이 0은 아직 안 쓴 곳, -1은 다음 세그먼트로 넘어간다는 표시
+ * - 본문은 거래(PREPARE) 또는 그 거래의 커밋/롤백 표시(COMMIT, ABORT)
+ * - 오프셋은 로그 전체 기준 바이트 위치이고, 세그먼트 파일 이름이 그 세그먼트의 시작 오프셋이다.
+ * - checkpoint 파일에 DB로 옮긴 위치를 남긴다. 다시 열면 그 위치부터 읽고, 끝의 깨진 레코드는 버린다.
+ * append는 여러 스레드에서, read/markDrained는 한 스레드(drainer)에서만 호출한다.
+ */
+@Slf4j
+public class TransactionJournal implements Closeable {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 8;
+    private static final int ROLL_MARKER = -1;
+    // 본문 형식이나 enum 상수 순서를 바꾸면 올린다.
+    private static final byte FORMAT_VERSION = 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment current;
+    private volatile long writeOffset;
+    // 이 위치 전까지는 디스크에 반영되었다.
+    @Getter
+    private volatile long forcedOffset;
+    @Getter
+    private volatile long drainedOffset;
+
+    private TransactionJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public static TransactionJournal open(Path directory, int segmentSize) throws IOException {
+        TransactionJournal journal = new TransactionJournal(directory, segmentSize);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        drainedOffset = readCheckpoint();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(baseOffset, Segment.open(path, baseOffset, segmentSize));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(drainedOffset, Segment.open(segmentPath(drainedOffset), drainedOffset, segmentSize));
+        }
+        deleteSegmentsBefore(drainedOffset);
+
+        // checkpoint부터 끝까지 레코드를 확인하면서 쓸 위치를 찾는다.
+        long offset = Math.max(drainedOffset, segments.firstKey());
+        while (true) {
+            Segment segment = segments.floorEntry(offset).getValue();
+            int position = (int) (offset - segment.baseOffset);
+            int length = segment.remaining(position) < 4 ? ROLL_MARKER : segment.buffer.getInt(position);
+            if (length == ROLL_MARKER && segments.containsKey(segment.end())) {
+                offset = segment.end();
+                continue;
+            }
+            if (length > 0 && readBody(segment, position, length) != null) {
+                offset += HEADER_SIZE + length;
+                continue;
+            }
+            if (length != 0 && length != ROLL_MARKER) {
+                log.warn("Discarding torn journal record at offset {}", offset);
+                segment.clear(position);
+            }
+            current = segment;
+            current.buffer.position(position);
+            break;
+        }
+        writeOffset = offset;
+        forcedOffset = offset;
+        // 쓸 위치 뒤에 남은 세그먼트는 쓰다 만 것
+        for (Segment segment : new ArrayList<>(segments.tailMap(current.baseOffset, false).values())) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * 거래 레코드를 이어 쓴다. 디스크 반영은 force()에서 한다.
+     *
+     * @return 다음 레코드의 시작 오프셋
+     */
+    public long append(Transaction transaction) throws IOException {
+        return append(encode(transaction));
+    }
+
+    /**
+     * 거래가 커밋/롤백되었다는 표시를 이어 쓴다.
+     */
+    public long appendMarker(String transactionId, boolean committed) throws IOException {
+        return append(encodeMarker(transactionId, committed ? RecordType.COMMIT : RecordType.ABORT));
+    }
+
+    private synchronized long append(byte[] body) throws IOException {
+        int recordSize = HEADER_SIZE + body.length;
+        if (recordSize + 4 > segmentSize) {
+            throw new IllegalArgumentException("Journal record is larger than a segment: " + recordSize);
+        }
+        if (current.buffer.remaining() < recordSize + 4) {
+            roll();
+        }
+        MappedByteBuffer buffer = current.buffer;
+        int position = buffer.position();
+        buffer.position(position + 4);
+        buffer.putInt(crc(body));
+        buffer.put(body);
+        // 길이는 마지막에 써서, 읽는 쪽이 다 쓰지 않은 레코드를 보지 않게 한다.
+        buffer.putInt(position, body.length);
+        writeOffset = current.baseOffset + buffer.position();
+        return writeOffset;
+    }
+
+    private void roll() throws IOException {
+        current.buffer.putInt(current.buffer.position(), ROLL_MARKER);
+        current.buffer.force();
+        long baseOffset = current.end();
+        current = Segment.open(segmentPath(baseOffset), baseOffset, segmentSize);
+        segments.put(baseOffset, current);
+    }
+
+    public void force() {
+        Segment segment;
+        long offset;
+        synchronized (this) {
+            segment = current;
+            offset = writeOffset;
+        }
+        // 이전 세그먼트는 roll 할 때 반영했다.
+        segment.buffer.force();
+        synchronized (this) {
+            if (offset > forcedOffset) {
+                forcedOffset = offset;
+            }
+        }
+    }
+
+    /**
+     * fromOffset부터 최대 max개의 레코드를 읽는다.
+     */
+    public List<Record> read(long fromOffset, int max) {
+        List<Record> records = new ArrayList<>();
+        long offset = fromOffset;
+        long end = writeOffset;
+        while (records.size() < max && offset < end) {
+            Segment segment = segments.floorEntry(offset).getValue();
+            int position = (int) (offset - segment.baseOffset);
+            int length = segment.remaining(position) < 4 ? ROLL_MARKER : segment.buffer.getInt(position);
+            if (length == ROLL_MARKER) {
+                offset = segment.end();
+                continue;
+            }
+            byte[] body = readBody(segment, position, length);
+            if (body == null) {
+                throw new IllegalStateException("Corrupted journal record at offset " + offset);
+            }
+            long nextOffset = offset + HEADER_SIZE + length;
+            records.add(decode(body, offset, nextOffset));
+            offset = nextOffset;
+        }
+        return records;
+    }
+
+    /**
+     * DB에 옮긴 위치를 남기고, 다 옮긴 세그먼트 파일을 지운다.
+     */
+    public void markDrained(long offset) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, offset));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        drainedOffset = offset;
+        deleteSegmentsBefore(offset);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(path)).getLong();
+    }
+
+    private void deleteSegmentsBefore(long offset) {
+        for (Segment segment : new ArrayList<>(segments.headMap(offset, false).values())) {
+            if (segment.end() <= offset && segment != current) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(segment.baseOffset);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete journal segment {}", segment.path, e);
+        }
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+    }
+
+    // crc가 맞지 않거나 세그먼트를 넘어가면 null
+    private static byte[] readBody(Segment segment, int position, int length) {
+        if (length < 0 || segment.remaining(position) < HEADER_SIZE + length) {
+            return null;
+        }
+        ByteBuffer view = segment.buffer.duplicate();
+        view.position(position + 4);
+        int crc = view.getInt();
+        byte[] body = new byte[length];
+        view.get(body);
+        return crc(body) == crc ? body : null;
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(body);
+        return (int) crc32.getValue();
+    }
+
+    static byte[] encode(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(RecordType.PREPARE.ordinal());
+            out.writeUTF(transaction.getTransactionId());
+            out.writeByte(transaction.getTransactionType().ordinal());
+            out.writeByte(transaction.getTransactionResultType().ordinal());
+            out.writeLong(transaction.getAccount().getId());
+            out.writeUTF(transaction.getAccount().getAccountNumber());
+            out.writeLong(transaction.getAmount());
+            writeNullable(out, transaction.getToAccount());
+            writeNullable(out, transaction.getTransactionMessage());
+            out.writeLong(transaction.getBalanceSnapshot());
+            out.writeLong(transaction.getTransactedAt().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(transaction.getTransactedAt().getNano());
+        } catch (IOException e) {
+            // 65535 바이트가 넘는 문자열
+            throw new IllegalArgumentException("Failed to encode journal record.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeMarker(String transactionId, RecordType type) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(type.ordinal());
+            out.writeUTF(transactionId);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to encode journal marker.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Record decode(byte[] body, long offset, long nextOffset) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unknown journal format version: " + version);
+            }
+            RecordType type = RecordType.values()[in.readByte()];
+            String transactionId = in.readUTF();
+            if (type != RecordType.PREPARE) {
+                return new Record(type, transactionId, null, offset, nextOffset);
+            }
+            return new Record(type, transactionId, decodeTransaction(in, transactionId), offset, nextOffset);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode journal record.", e);
+        }
+    }
+
+    private static Transaction decodeTransaction(DataInputStream in, String transactionId) throws IOException {
+        TransactionType transactionType = TransactionType.values()[in.readByte()];
+        TransactionResultType resultType = TransactionResultType.values()[in.readByte()];
+        // DB에 넣을 때 id로 참조만 한다.
+        Account account = Account.builder().build();
+        account.setId(in.readLong());
+        account.setAccountNumber(in.readUTF());
+        return Transaction.builder()
+                .transactionId(transactionId)
+                .transactionType(transactionType)
+                .transactionResultType(resultType)
+                .account(account)
+                .amount(in.readLong())
+                .toAccount(readNullable(in))
+                .transactionMessage(readNullable(in))
+                .balanceSnapshot(in.readLong())
+                .transactedAt(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC))
+                .build();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public enum RecordType {
+        PREPARE, // 커밋 전에 쓴 거래
+        COMMIT,
+        ABORT
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Record {
+        private final RecordType type;
+        private final String transactionId;
+        // PREPARE가 아니면 null
+        private final Transaction transaction;
+        private final long offset;
+        private final long nextOffset;
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final long baseOffset;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, long baseOffset, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.baseOffset = baseOffset;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        // 기존 세그먼트는 파일 크기대로, 새 세그먼트는 segmentSize로 연다.
+        private static Segment open(Path path, long baseOffset, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size() > 0 ? channel.size() : segmentSize;
+            return new Segment(path, baseOffset, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        private long end() {
+            return baseOffset + buffer.capacity();
+        }
+
+        private int remaining(int position) {
+            return buffer.capacity() - position;
+        }
+
+        // 깨진 레코드부터 세그먼트 끝까지 0으로 채운다.
+        private void clear(int position) {
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+}
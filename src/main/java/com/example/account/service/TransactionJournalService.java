@@ -0,0 +1,358 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.LedgerPostingRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.JournalFsyncPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 거래 기록을 요청 트랜잭션에서 바로 insert 하지 않고 journal에 남긴 뒤 백그라운드에서 모아서 넣는다.
+ * - 요청 트랜잭션의 커밋 직전(beforeCommit)에 journal에 쓰고 디스크에 반영될 때까지 기다린다.
+ *   커밋/롤백이 끝나면 COMMIT/ABORT 표시를 남긴다. (거래 id를 돌려줄 때는 이미 디스크에 있다)
+ * - drain은 커밋된 거래만 넣고, 결과를 아직 모르는 거래 앞까지만 checkpoint를 남긴다.
+ *   재시작하면 checkpoint부터 다시 넣고, 이미 들어간 거래는 거래 id로 거른다.
+ * - 표시 없이 끝난 거래(커밋 중에 종료)나 커밋 결과를 모르는 거래는 in-doubt로 두고,
+ *   같은 DB 트랜잭션에서 남긴 원장 기록(LedgerPosting)이 있으면 커밋, 없으면 롤백으로 본다.
+ *   원장을 읽지 못하면 drain은 그 앞에서 멈추고 다음 주기에 다시 확인한다.
+ * - 아직 DB에 넣지 않은 거래가 max-pending 이상이면 journal을 거치지 않고 요청 트랜잭션에서 바로 저장한다.
+ * - 아직 DB에 들어가지 않은 거래도 조회/취소할 수 있게 메모리에 들고 있는다.
+ * - journal에 쓰지 못하면 요청 트랜잭션 안에서 바로 저장한다.
+ */
+@Slf4j
+@Service
+public class TransactionJournalService {
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String directory;
+    private final int segmentSize;
+    private final JournalFsyncPolicy fsyncPolicy;
+    private final int drainBatchSize;
+    private final int maxPending;
+
+    // 아직 DB에 넣지 않은 거래
+    private final Map<String, Transaction> pending = new ConcurrentHashMap<>();
+    // journal에 쓴 거래의 커밋 여부 (drain에서 넣거나 버린 뒤에 지운다)
+    private final Map<String, Boolean> outcomes = new ConcurrentHashMap<>();
+    // 커밋 여부를 원장으로 확인해야 하는 거래
+    private final Map<String, Transaction> inDoubt = new ConcurrentHashMap<>();
+    private final Object forceMonitor = new Object();
+    private final long fsyncIntervalMillis;
+    private final Counter fallbackCounter;
+    private final Counter pendingFullCounter;
+    private TransactionJournal journal;
+    // 이 위치 전의 레코드는 재시작 전에 이미 DB에 들어갔을 수 있다.
+    private long replayEndOffset;
+
+    public TransactionJournalService(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            LedgerPostingRepository ledgerPostingRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.journal.enabled:false}") boolean enabled,
+            @Value("${account.journal.directory:journal}") String directory,
+            @Value("${account.journal.segment-size:67108864}") int segmentSize,
+            @Value("${account.journal.fsync-policy:INTERVAL}") JournalFsyncPolicy fsyncPolicy,
+            @Value("${account.journal.fsync-interval:10}") long fsyncIntervalMillis,
+            @Value("${account.journal.drain-batch-size:500}") int drainBatchSize,
+            @Value("${account.journal.max-pending:100000}") int maxPending) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        // drain은 요청 트랜잭션과 상관없이 새 트랜잭션으로 저장한다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.drainBatchSize = drainBatchSize;
+        this.maxPending = maxPending;
+        this.fallbackCounter = Counter.builder("account.journal.fallback")
+                .description("journal에 쓰지 못해서 바로 DB에 저장한 거래 수")
+                .register(meterRegistry);
+        this.pendingFullCounter = Counter.builder("account.journal.pending.full")
+                .description("아직 DB에 넣지 않은 거래가 max-pending에 닿아서 바로 DB에 저장한 거래 수")
+                .register(meterRegistry);
+        Gauge.builder("account.journal.pending", pending, Map::size)
+                .description("journal에 있고 아직 DB에 넣지 않은 거래 수")
+                .register(meterRegistry);
+        Gauge.builder("account.journal.in-doubt", inDoubt, Map::size)
+                .description("커밋 여부를 원장으로 확인해야 하는 거래 수")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = TransactionJournal.open(Paths.get(directory), segmentSize);
+        List<TransactionJournal.Record> records = journal.read(journal.getDrainedOffset(), Integer.MAX_VALUE);
+        Map<String, Transaction> prepared = new LinkedHashMap<>();
+        for (TransactionJournal.Record record : records) {
+            if (record.getType() == TransactionJournal.RecordType.PREPARE) {
+                prepared.put(record.getTransactionId(), record.getTransaction());
+            } else {
+                outcomes.put(record.getTransactionId(), record.getType() == TransactionJournal.RecordType.COMMIT);
+            }
+        }
+        // checkpoint 전에 이미 넣은 거래의 표시
+        outcomes.keySet().retainAll(prepared.keySet());
+        for (Transaction transaction : prepared.values()) {
+            Boolean committed = outcomes.get(transaction.getTransactionId());
+            if (committed == null) {
+                // PREPARE는 DB 커밋 전에 쓰므로 커밋되었는지 알 수 없다.
+                log.warn("Journal record has no commit marker, resolving with ledger. transactionId: {}",
+                        transaction.getTransactionId());
+                inDoubt.put(transaction.getTransactionId(), transaction);
+            } else if (committed) {
+                pending.put(transaction.getTransactionId(), transaction);
+            }
+        }
+        replayEndOffset = records.isEmpty() ? journal.getDrainedOffset()
+                : records.get(records.size() - 1).getNextOffset();
+        log.info("Opened transaction journal. {} transactions to replay, {} in doubt.",
+                pending.size(), inDoubt.size());
+    }
+
+    /**
+     * 거래 기록을 남긴다. 트랜잭션 안이면 커밋 직전에 journal에 쓴다.
+     */
+    public void record(Transaction transaction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (prepare(transaction)) {
+                complete(transaction, true);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> transactionRepository.save(transaction));
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean prepared;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                prepared = prepare(transaction);
+                if (!prepared) {
+                    // 아직 요청 트랜잭션 안이라서 같이 커밋된다.
+                    transactionRepository.save(transaction);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!prepared) {
+                    return;
+                }
+                if (status == STATUS_UNKNOWN) {
+                    // 커밋 중 오류: 원장으로 확인할 때까지 drain이 여기서 멈춘다.
+                    log.warn("Commit outcome unknown, resolving with ledger. transactionId: {}",
+                            transaction.getTransactionId());
+                    inDoubt.put(transaction.getTransactionId(), transaction);
+                    return;
+                }
+                complete(transaction, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    // journal에 쓰고 디스크에 반영될 때까지 기다린다. 쓰지 못하면 false
+    private boolean prepare(Transaction transaction) {
+        if (pending.size() >= maxPending) {
+            // drain이 계속 실패하는 동안 메모리가 끝없이 늘지 않게
+            pendingFullCounter.increment();
+            return false;
+        }
+        try {
+            long offset = journal.append(transaction);
+            if (fsyncPolicy == JournalFsyncPolicy.ALWAYS) {
+                journal.force();
+            } else if (fsyncPolicy == JournalFsyncPolicy.INTERVAL) {
+                awaitForced(offset);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            fallbackCounter.increment();
+            log.error("Journal append failed, saving directly. transactionId: {}",
+                    transaction.getTransactionId(), e);
+            return false;
+        }
+    }
+
+    // 주기 fsync가 이 위치까지 반영하기를 기다린다. 두 주기 안에 안 되면 직접 반영한다.
+    private void awaitForced(long offset) {
+        long deadline = System.currentTimeMillis() + fsyncIntervalMillis * 2;
+        synchronized (forceMonitor) {
+            long remaining;
+            while (journal.getForcedOffset() < offset
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    forceMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (journal.getForcedOffset() < offset) {
+            journal.force();
+        }
+    }
+
+    private void complete(Transaction transaction, boolean committed) {
+        // 조회/취소는 커밋된 거래만 본다. drainer가 결과를 보고 지우므로 결과보다 먼저 넣는다.
+        if (committed) {
+            pending.put(transaction.getTransactionId(), transaction);
+        }
+        outcomes.put(transaction.getTransactionId(), committed);
+        try {
+            journal.appendMarker(transaction.getTransactionId(), committed);
+        } catch (IOException | RuntimeException e) {
+            // 이 노드에서는 outcomes로 판단한다. 재시작 전에 drain 되지 않으면 커밋된 것으로 넣는다.
+            log.error("Journal marker append failed. transactionId: {}", transaction.getTransactionId(), e);
+        }
+    }
+
+    public Optional<Transaction> findPending(String transactionId) {
+        return Optional.ofNullable(pending.get(transactionId));
+    }
+
+    @Scheduled(fixedDelayString = "${account.journal.fsync-interval:10}")
+    public void force() {
+        if (enabled && fsyncPolicy == JournalFsyncPolicy.INTERVAL) {
+            journal.force();
+            synchronized (forceMonitor) {
+                forceMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * journal에서 읽어서 drainBatchSize개씩 DB에 넣는다.
+     * 커밋 여부를 아직 모르는 거래를 만나면 거기서 멈추고 다음 주기에 다시 읽는다.
+     */
+    @Scheduled(fixedDelayString = "${account.journal.drain-interval:200}")
+    public synchronized void drain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            resolveInDoubt();
+            List<TransactionJournal.Record> records;
+            while (!(records = journal.read(journal.getDrainedOffset(), drainBatchSize)).isEmpty()) {
+                List<TransactionJournal.Record> decided = decidedPrefix(records);
+                if (decided.isEmpty()) {
+                    return;
+                }
+                List<Transaction> committed = decided.stream()
+                        .filter(record -> record.getType() == TransactionJournal.RecordType.PREPARE
+                                && outcomes.get(record.getTransactionId()))
+                        .map(TransactionJournal.Record::getTransaction)
+                        .collect(Collectors.toList());
+                if (!committed.isEmpty()) {
+                    insert(committed, decided.get(0).getOffset());
+                }
+                journal.markDrained(decided.get(decided.size() - 1).getNextOffset());
+                for (TransactionJournal.Record record : decided) {
+                    if (record.getType() == TransactionJournal.RecordType.PREPARE) {
+                        pending.remove(record.getTransactionId());
+                        outcomes.remove(record.getTransactionId());
+                    }
+                }
+                if (decided.size() < records.size()) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 다음 주기에 같은 위치부터 다시 넣는다.
+            log.error("Journal drain failed at offset {}", journal.getDrainedOffset(), e);
+        }
+    }
+
+    // 원장 기록은 거래와 같은 DB 트랜잭션에서 남기므로, 있으면 커밋된 거래다.
+    private void resolveInDoubt() {
+        if (inDoubt.isEmpty()) {
+            return;
+        }
+        Set<String> posted = new HashSet<>(
+                ledgerPostingRepository.findExistingTransactionIds(new ArrayList<>(inDoubt.keySet())));
+        for (Transaction transaction : new ArrayList<>(inDoubt.values())) {
+            boolean committed = posted.contains(transaction.getTransactionId());
+            log.warn("Resolved in-doubt journal record. transactionId: {}, committed: {}",
+                    transaction.getTransactionId(), committed);
+            if (committed) {
+                pending.put(transaction.getTransactionId(), transaction);
+            }
+            outcomes.put(transaction.getTransactionId(), committed);
+            inDoubt.remove(transaction.getTransactionId());
+        }
+    }
+
+    // 커밋 여부를 모르는 첫 거래 앞까지 (COMMIT/ABORT 표시는 outcomes로 이미 반영되어 있어서 건너뛴다)
+    private List<TransactionJournal.Record> decidedPrefix(List<TransactionJournal.Record> records) {
+        for (int i = 0; i < records.size(); i++) {
+            TransactionJournal.Record record = records.get(i);
+            if (record.getType() == TransactionJournal.RecordType.PREPARE
+                    && !outcomes.containsKey(record.getTransactionId())) {
+                return records.subList(0, i);
+            }
+        }
+        return records;
+    }
+
+    private void insert(List<Transaction> committed, long fromOffset) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = new ArrayList<>(committed);
+            if (fromOffset < replayEndOffset) {
+                // checkpoint를 남기기 전에 종료되었으면 이미 들어간 거래가 있다.
+                Set<String> saved = new HashSet<>(transactionRepository.findExistingTransactionIds(
+                        transactions.stream().map(Transaction::getTransactionId).collect(Collectors.toList())));
+                transactions.removeIf(transaction -> saved.contains(transaction.getTransactionId()));
+            }
+            for (Transaction transaction : transactions) {
+                transaction.setAccount(accountRepository.getReferenceById(transaction.getAccount().getId()));
+            }
+            // hibernate.jdbc.batch_size 단위로 묶어서 insert
+            transactionRepository.saveAll(transactions);
+        });
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        drain();
+        journal.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionDto;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 거래 번호 -> 거래 조회 응답 캐시 (GET /transaction/{transactionId})
+ * 거래는 한 번 쓰면 바뀌지 않으므로 지우지 않고, 크기만 제한한다.
+ * 응답 객체는 setter가 있으므로 바뀌지 않는 값으로 두고 꺼낼 때마다 새 응답을 만든다.
+ * 실패(F) 거래는 거래 번호를 돌려주지 않으므로 넣지 않는다.
+ * - 거래를 쓸 때(커밋 후) 채워서 방금 만든 거래도 첫 조회부터 메모리에서 응답한다.
+ * - redis.enabled면 redis(RMapCache)에도 두어 다른 노드에서 만든 거래도 DB 없이 응답한다.
+ *   redis 오류는 캐시에 없는 것으로 보고 DB에서 읽는다.
+ * metrics: cache.gets{cache=transaction.record, result=hit|miss}, cache.evictions
+ */
+@Slf4j
+@Component
+public class TransactionRecordCache {
+    private static final String CACHE_NAME = "transaction.record";
+    private static final String REDIS_KEY = "TRANSACTION_RECORDS";
+
+    private final Cache<String, CachedTransaction> localCache;
+    private final RMapCache<String, String> redisCache;
+    private final ObjectMapper objectMapper;
+    private final long redisTtl;
+
+    public TransactionRecordCache(
+            ObjectProvider<RedissonClient> redissonClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${account.transaction-cache.max-size:100000}") long maxSize,
+            @Value("${account.transaction-cache.redis.enabled:false}") boolean redisEnabled,
+            @Value("${account.transaction-cache.redis.max-size:1000000}") int redisMaxSize,
+            @Value("${account.transaction-cache.redis.ttl:86400000}") long redisTtl) {
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.objectMapper = objectMapper;
+        this.redisTtl = redisTtl;
+        this.redisCache = redisEnabled
+                ? redissonClient.getObject().getMapCache(REDIS_KEY, StringCodec.INSTANCE)
+                : null;
+        if (redisCache != null) {
+            try {
+                redisCache.trySetMaxSize(redisMaxSize);
+            } catch (RedisException e) {
+                log.warn("Failed to set transaction cache max size.", e);
+            }
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, CACHE_NAME);
+    }
+
+    public Optional<QueryTransactionResponse> get(String transactionId) {
+        CachedTransaction cached = localCache.getIfPresent(transactionId);
+        if (cached != null || redisCache == null) {
+            return Optional.ofNullable(cached).map(CachedTransaction::toResponse);
+        }
+        try {
+            String json = redisCache.get(transactionId);
+            if (json == null) {
+                return Optional.empty();
+            }
+            QueryTransactionResponse response = objectMapper.readValue(json, QueryTransactionResponse.class);
+            localCache.put(transactionId, new CachedTransaction(response));
+            return Optional.of(response);
+        } catch (RedisException | JsonProcessingException e) {
+            log.warn("Transaction cache is unavailable: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(QueryTransactionResponse response) {
+        if (response.getTransactionResultType() == TransactionResultType.F) {
+            return;
+        }
+        localCache.put(response.getTransactionId(), new CachedTransaction(response));
+        if (redisCache == null) {
+            return;
+        }
+        try {
+            // 응답을 기다리지 않는다.
+            redisCache.fastPutAsync(response.getTransactionId(), objectMapper.writeValueAsString(response),
+                            redisTtl, TimeUnit.MILLISECONDS)
+                    .whenComplete((added, e) -> {
+                        if (e != null) {
+                            log.warn("Failed to put transaction to cache: {}", e.getMessage());
+                        }
+                    });
+        } catch (RedisException | JsonProcessingException e) {
+            log.warn("Failed to put transaction to cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에 넣는다. (롤백된 거래를 응답하지 않게)
+     */
+    public void putAfterCommit(Collection<Transaction> transactions) {
+        // 엔티티가 바뀌거나 분리되기 전에 응답을 만들어 둔다.
+        List<QueryTransactionResponse> responses = transactions.stream()
+                .filter(transaction -> transaction.getTransactionResultType() != TransactionResultType.F)
+                .map(transaction -> QueryTransactionResponse.from(TransactionDto.fromEntity(transaction)))
+                .collect(Collectors.toList());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            responses.forEach(this::put);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                responses.forEach(TransactionRecordCache.this::put);
+            }
+        });
+    }
+
+    private static final class CachedTransaction {
+        private final String accountNumber;
+        private final TransactionType transactionType;
+        private final TransactionResultType transactionResultType;
+        private final String transactionId;
+        private final Long amount;
+        private final LocalDateTime transactedAt;
+
+        private CachedTransaction(QueryTransactionResponse response) {
+            this.accountNumber = response.getAccountNumber();
+            this.transactionType = response.getTransactionType();
+            this.transactionResultType = response.getTransactionResultType();
+            this.transactionId = response.getTransactionId();
+            this.amount = response.getAmount();
+            this.transactedAt = response.getTransactedAt();
+        }
+
+        private QueryTransactionResponse toResponse() {
+            return new QueryTransactionResponse(accountNumber, transactionType, transactionResultType,
+                    transactionId, amount, transactedAt);
+        }
+    }
+}
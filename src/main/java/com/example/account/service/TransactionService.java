@@ -1,9 +1,13 @@
 package com.example.account.service;
 
+import com.example.account.aop.RetryOnConflict;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.QueryTransactionResponse;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRespository;
@@ -15,8 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.TransactionResultType.*;
 import static com.example.account.type.TransactionType.*;
@@ -28,6 +33,16 @@ public class TransactionService {
     private  final TransactionRepository transactionRepository;
     private final AccountUserRespository accountUserRespository;
     private final AccountRepository accountRepository;
+    private final ConcurrencyModeResolver concurrencyModeResolver;
+    private final BalanceReservationService balanceReservationService;
+    private final ReservationWriter reservationWriter;
+    private final TransactionJournalService transactionJournalService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final AccountNumberFilter accountNumberFilter;
+    private final AccountMetadataCache accountMetadataCache;
+    private final TransactionRecordCache transactionRecordCache;
+    private final LedgerService ledgerService;
+    private final AccountReadModel accountReadModel;
 
     /**
      *
@@ -36,6 +51,7 @@ public class TransactionService {
      * 거래 금액이 너무 작거나 큰 경우 실패 응답
      */
 
+    @RetryOnConflict
     @Transactional
     public TransactionDto useBalance(
             Long userId, String accountNumber, Long amount,
@@ -45,33 +61,208 @@ public class TransactionService {
         // 보내는 사람
         AccountUser fromUser = accountUserRespository.findById(userId)
                 .orElseThrow(()->new AccountException(ErrorCode.USER_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(()-> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-        // 받는 계좌
-        Account toAccount = accountRepository.
-                findByAccountNumberAndBank(toAccountNumber,Bank.valueOf(bank))
-                .orElseThrow(()->new AccountException(ErrorCode.USER_NOT_FOUND));
+        // 없는 계좌번호는 DB까지 가지 않는다.
+        checkAccountNumber(accountNumber, ErrorCode.ACCOUNT_NOT_FOUND);
+        checkAccountNumber(toAccountNumber, ErrorCode.USER_NOT_FOUND);
+        Account account;
+        Account toAccount;
+        if (isDbLock(USE)) {
+            // 보내는 계좌와 받는 계좌를 한 쿼리로, 계좌번호 순서대로 잠근다.
+            List<Account> accounts = accountRepository.findAllByAccountNumberInForUpdate(
+                    Arrays.asList(accountNumber, toAccountNumber));
+            account = findAccount(accounts, accountNumber)
+                    .orElseThrow(()-> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            toAccount = findAccount(accounts, toAccountNumber)
+                    .filter(a -> a.getBank() == Bank.valueOf(bank))
+                    .orElseThrow(()->new AccountException(ErrorCode.USER_NOT_FOUND));
+        } else {
+            // 계좌 확인은 캐시한 계좌 정보로, 잔액은 id로 DB에서 읽는다.
+            AccountMetadata from = accountMetadataCache.get(accountNumber)
+                    .orElseThrow(()-> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            // 받는 계좌
+            AccountMetadata to = accountMetadataCache.get(toAccountNumber)
+                    .filter(m -> m.getBank() == Bank.valueOf(bank))
+                    .orElseThrow(()->new AccountException(ErrorCode.USER_NOT_FOUND));
+            account = loadAccount(from);
+            toAccount = loadAccount(to);
+        }
 
-        log.info("상대이름: "+toAccount.getAccountUser().getName());
+        // 소유주(accountUser)는 lazy라서 이름을 찍으면 조회가 하나 더 나간다.
+        log.info("상대계좌: {}", toAccount.getAccountNumber());
+
+        if (balanceReservationService.isEnabled()) {
+            // RESERVATION 모드: 잔액 차감은 redis에서, DB 반영은 비동기로
+            return reserveBalance(account, toAccount, amount, transactionMessage);
+        }
 
         account.useBalance(amount);
-        toAccount.addBalance(amount);
-        saveAndGetTransaction(SEND,S,account,amount,transactionMessage);
+        // deferred-credit이면 받는 계좌 row는 update하지 않고 원장에만 남긴다.
+        boolean creditApplied = !ledgerService.isDeferredCredit();
+        if (creditApplied) {
+            toAccount.addBalance(amount);
+        }
+        // 저장한 거래를 그대로 응답한다. (응답의 거래 번호로 조회/취소할 수 있게)
+        Transaction transaction = newTransaction(SEND, S, account, amount, transactionMessage);
+        transaction.setToAccount(toAccount.getAccountNumber());
+        ledgerService.transfer(transaction.getTransactionId(), account, toAccount, amount, creditApplied);
+        accountReadModel.updateAfterCommit(Arrays.asList(account, toAccount));
+
+        return TransactionDto.fromEntity(saveTransaction(transaction));
+    }
+
+
+
+    private TransactionDto reserveBalance(Account account, Account toAccount,
+                                          Long amount, String transactionMessage) {
+        long balance = balanceReservationService.reserve(account.getAccountNumber(), amount);
+        Transaction transaction = Transaction.builder()
+                .transactionType(SEND)
+                .transactionResultType(S)
+                .account(account)
+                .amount(amount)
+                .toAccount(toAccount.getAccountNumber())
+                .transactionMessage(transactionMessage)
+                .balanceSnapshot(balance)
+                .transactionId(transactionIdGenerator.generate())
+                .transactedAt(LocalDateTime.now())
+                .build();
+        reservationWriter.submit(transaction, toAccount);
+        return TransactionDto.fromEntity(transaction);
+    }
+
+    /**
+     * 일괄 이체 (한 트랜잭션, 한 번의 flush)
+     * 필요한 사용자/계좌를 한 번에 읽고, 항목마다 앞 항목을 반영한 잔액으로 검증한다.
+     * ALL_OR_NOTHING: 하나라도 실패하면 아무것도 반영하지 않는다. (실패 항목의 실패 거래만 저장)
+     * BEST_EFFORT: 성공한 항목만 반영하고 실패한 항목은 실패 거래로 저장한다.
+     */
+    @RetryOnConflict
+    @Transactional
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> items, BatchMode mode) {
+        if (balanceReservationService.isEnabled()) {
+            // RESERVATION 모드에서는 redis 카운터가 출금의 기준이다.
+            throw new AccountException(ErrorCode.BATCH_NOT_SUPPORTED);
+        }
+        Set<String> accountNumbers = new TreeSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (UseBalance.Request item : items) {
+            accountNumbers.addAll(item.getAccountNumbers());
+            userIds.add(item.getUserId());
+        }
+        Map<String, Account> accounts = (isDbLock(USE)
+                ? accountRepository.findAllByAccountNumberInForUpdate(accountNumbers)
+                : accountRepository.findByAccountNumberIn(accountNumbers))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+        Set<Long> existingUserIds = accountUserRespository.findAllById(userIds).stream()
+                .map(AccountUser::getId)
+                .collect(Collectors.toSet());
+
+        // 검증: 실제 엔티티는 건드리지 않고 잔액만 따라가며 계산
+        // (deferred-credit이면 받은 돈은 바로 출금할 수 없다)
+        boolean creditApplied = !ledgerService.isDeferredCredit();
+        Map<String, Long> balances = new HashMap<>();
+        accounts.forEach((accountNumber, account) -> balances.put(accountNumber, account.getBalance()));
+        ErrorCode[] errors = new ErrorCode[items.size()];
+        boolean failed = false;
+        for (int i = 0; i < items.size(); i++) {
+            UseBalance.Request item = items.get(i);
+            errors[i] = validateBatchItem(item, accounts, balances, existingUserIds);
+            if (errors[i] == null) {
+                balances.merge(item.getAccountNumber(), -item.getAmount(), Long::sum);
+                if (creditApplied) {
+                    balances.merge(item.getToAccountNumber(), item.getAmount(), Long::sum);
+                }
+            } else if (mode == BatchMode.ALL_OR_NOTHING) {
+                failed = true;
+                break;
+            }
+        }
 
-        return TransactionDto.fromEntity(
-                Transaction.builder()
-                        .account(account)
-                        .amount(amount)
-                        .toAccount(toAccount.getAccountNumber())
-                        .transactionMessage(transactionMessage)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-",""))
-                        .transactedAt(LocalDateTime.now())
-                        .build()
-        );
+        List<TransactionDto> results = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            UseBalance.Request item = items.get(i);
+            Account account = accounts.get(item.getAccountNumber());
+            if (failed || errors[i] != null) {
+                ErrorCode error = errors[i] != null ? errors[i] : ErrorCode.BATCH_ROLLED_BACK;
+                results.add(failedBatchItem(item, error));
+                if (errors[i] != null && account != null) {
+                    transactions.add(newTransaction(USE, F, account, item.getAmount(), ""));
+                }
+                continue;
+            }
+            Account toAccount = accounts.get(item.getToAccountNumber());
+            account.useBalance(item.getAmount());
+            if (creditApplied) {
+                toAccount.addBalance(item.getAmount());
+            }
+            Transaction transaction = newTransaction(SEND, S, account, item.getAmount(),
+                    item.getTransactionMessage());
+            transaction.setToAccount(toAccount.getAccountNumber());
+            ledgerService.transfer(transaction.getTransactionId(), account, toAccount,
+                    item.getAmount(), creditApplied);
+            transactions.add(transaction);
+            results.add(TransactionDto.fromEntity(transaction));
+        }
+        // hibernate.jdbc.batch_size 단위로 묶어서 insert/update
+        transactionRepository.saveAll(transactions);
+        transactionRecordCache.putAfterCommit(transactions);
+        accountReadModel.updateAfterCommit(accounts.values());
+        return results;
     }
 
+    private ErrorCode validateBatchItem(UseBalance.Request item, Map<String, Account> accounts,
+                                        Map<String, Long> balances, Set<Long> existingUserIds) {
+        if (!existingUserIds.contains(item.getUserId())) {
+            return ErrorCode.USER_NOT_FOUND;
+        }
+        if (!accounts.containsKey(item.getAccountNumber())) {
+            return ErrorCode.ACCOUNT_NOT_FOUND;
+        }
+        Account toAccount = accounts.get(item.getToAccountNumber());
+        if (toAccount == null || toAccount.getBank() == null
+                || !toAccount.getBank().name().equals(item.getBank())) {
+            return ErrorCode.USER_NOT_FOUND;
+        }
+        if (item.getAmount() > balances.get(item.getAccountNumber())) {
+            return ErrorCode.AMOUNT_EXCEED_BALANCE;
+        }
+        return null;
+    }
 
+    private static TransactionDto failedBatchItem(UseBalance.Request item, ErrorCode errorCode) {
+        return TransactionDto.builder()
+                .accountNumber(item.getAccountNumber())
+                .transactionType(SEND)
+                .transactionResultType(F)
+                .amount(item.getAmount())
+                .toAccount(item.getToAccountNumber())
+                .transactionMessage(item.getTransactionMessage())
+                .errorCode(errorCode)
+                .build();
+    }
+
+    private boolean isDbLock(TransactionType transactionType) {
+        return concurrencyModeResolver.resolve(transactionType) == ConcurrencyMode.DB_LOCK;
+    }
+
+    private Account loadAccount(AccountMetadata metadata) {
+        return accountRepository.findById(metadata.getId())
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+    }
+
+    private void checkAccountNumber(String accountNumber, ErrorCode errorCode) {
+        if (!accountNumberFilter.mightContain(accountNumber)) {
+            throw new AccountException(errorCode);
+        }
+    }
+
+    private static Optional<Account> findAccount(List<Account> accounts, String accountNumber) {
+        return accounts.stream()
+                .filter(a -> a.getAccountNumber().equals(accountNumber))
+                .findFirst();
+    }
 
     private void validateUseBalance(AccountUser user, Account account,
                                     Long amount, Account toAccount, String bank) {
@@ -89,48 +280,77 @@ public class TransactionService {
         }
 
     }
-    @Transactional
-    public void saveFaileUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+    private  Transaction saveAndGetTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount, String transactionMessage) {
+            return saveTransaction(newTransaction(transactionType, transactionResultType,
+                    account, amount, transactionMessage));
+    }
 
-        saveAndGetTransaction(USE,F,account,amount,"");
+    private Transaction saveTransaction(Transaction transaction) {
+        // 커밋되면 조회 캐시에 넣는다.
+        transactionRecordCache.putAfterCommit(Collections.singletonList(transaction));
+        if (transactionJournalService.isEnabled()) {
+            // 커밋 직전에 journal에 남기고 DB에는 백그라운드에서 넣는다.
+            transactionJournalService.record(transaction);
+            return transaction;
+        }
+        return transactionRepository.save(transaction);
     }
-    private  Transaction saveAndGetTransaction(
+
+    private Transaction newTransaction(
             TransactionType transactionType,
             TransactionResultType transactionResultType,
             Account account,
             Long amount, String transactionMessage) {
-            return transactionRepository.save(
-                    Transaction.builder()
-                            .transactionType(transactionType)
-                            .transactionResultType(transactionResultType)
-                            .account(account)
-                            .amount(amount)
-                            .transactionMessage(transactionMessage)
-                            .balanceSnapshot(account.getBalance())
-                            .transactionId(UUID.randomUUID().toString().replace("-",""))
-                            .transactedAt(LocalDateTime.now())
-                            .build()
-            );
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .transactionMessage(transactionMessage)
+                .balanceSnapshot(account.getBalance())
+                .transactionId(transactionIdGenerator.generate())
+                .transactedAt(LocalDateTime.now())
+                .build();
     }
 
+    @RetryOnConflict(transactionType = CANCEL)
     @Transactional
     public TransactionDto cancelBalance(
             String transactionId, String accountNumber, Long amount) {
-        Transaction trasaction = transactionRepository.findByTransactionId(transactionId)
+        Transaction trasaction = findTransaction(transactionId)
                 .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        validateCancelBalance(trasaction,account,amount);
+        checkAccountNumber(accountNumber, ErrorCode.ACCOUNT_NOT_FOUND);
+        Account account;
+        if (isDbLock(CANCEL)) {
+            account = accountRepository.findByAccountNumberForUpdate(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            validateCancelBalance(trasaction,account.getId(),amount);
+        } else {
+            // 검증에 실패하면 계좌 row는 읽지 않는다.
+            AccountMetadata metadata = accountMetadataCache.get(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            validateCancelBalance(trasaction,metadata.getId(),amount);
+            account = loadAccount(metadata);
+        }
         account.cancelBalance(amount);
+        if (balanceReservationService.isEnabled()) {
+            // redis 잔액 카운터에는 커밋된 뒤에 더한다.
+            balanceReservationService.creditAfterCommit(accountNumber, amount);
+        }
 
-        return TransactionDto.fromEntity(saveAndGetTransaction(CANCEL,S,account,amount,""));
+        Transaction cancel = saveAndGetTransaction(CANCEL,S,account,amount,"");
+        ledgerService.refund(cancel.getTransactionId(), account, amount);
+        accountReadModel.updateAfterCommit(Collections.singletonList(account));
+        return TransactionDto.fromEntity(cancel);
     }
 
-    private void validateCancelBalance(Transaction trasaction, Account account, Long amount) {
-        if(!Objects.equals(trasaction.getAccount().getId(),account.getId())){
+
+    private void validateCancelBalance(Transaction trasaction, Long accountId, Long amount) {
+        if(!Objects.equals(trasaction.getAccount().getId(),accountId)){
             throw new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
         }
         if(!Objects.equals(trasaction.getAmount(), amount)){
@@ -141,17 +361,25 @@ public class TransactionService {
         }
     }
 
-    @Transactional
-    public void saveFaileCancelTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        saveAndGetTransaction(CANCEL,F,account,amount,"");
+    /**
+     * 거래는 바뀌지 않으므로 캐시에 있으면 DB를 조회하지 않는다.
+     */
+    public QueryTransactionResponse queryTransaction(String transactionId) {
+        Optional<QueryTransactionResponse> cached = transactionRecordCache.get(transactionId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        QueryTransactionResponse response = transactionJournalService.findPending(transactionId)
+                .map(transaction -> QueryTransactionResponse.from(TransactionDto.fromEntity(transaction)))
+                .or(() -> transactionRepository.findQueryResponseByTransactionId(transactionId))
+                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+        transactionRecordCache.put(response);
+        return response;
     }
 
-    public TransactionDto queryTransaction(String transactionId) {
-        return TransactionDto.fromEntity(transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND))
-        );
+    // journal에만 있고 아직 DB에 들어가지 않은 거래를 먼저 찾는다. (DB에 넣은 뒤에 journal에서 지운다)
+    private Optional<Transaction> findTransaction(String transactionId) {
+        Optional<Transaction> pending = transactionJournalService.findPending(transactionId);
+        return pending.isPresent() ? pending : transactionRepository.findByTransactionId(transactionId);
     }
 }
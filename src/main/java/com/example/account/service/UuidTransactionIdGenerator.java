@@ -0,0 +1,18 @@
+package com.example.account.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 무작위 32자리 거래 번호 (이전 방식)
+ */
+@Component
+@ConditionalOnProperty(name = "account.transaction-id.type", havingValue = "uuid")
+public class UuidTransactionIdGenerator implements TransactionIdGenerator {
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.account.type;
+
+public enum BatchMode {
+    ALL_OR_NOTHING, // 하나라도 실패하면 아무것도 반영하지 않음
+    BEST_EFFORT // 성공한 항목만 반영
+}
@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+public enum ConcurrencyMode {
+    LOCK, // LockService(redis/local)로 계좌 lock
+    OPTIMISTIC, // lock 없이 Account.version 충돌 시 재시도
+    DB_LOCK, // redis 없이 SELECT ... FOR UPDATE로 계좌 row lock
+    RESERVATION // redis Lua로 잔액 확인/차감, DB 반영은 비동기 (use 전용)
+}
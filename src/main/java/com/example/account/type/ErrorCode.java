@@ -12,8 +12,15 @@ public enum ErrorCode {
     ACCOUNT_NOT_FOUND("계좌가 없습니다."),
     BANK_NOT_FOUND("은행이 없습니다."),
     ACCOUNT_ALREADY_EXISTS("이미 있는 계좌입니다."),
+    ACCOUNT_NUMBER_EXHAUSTED("발급할 수 있는 계좌번호가 없습니다."),
     ACCOUNT_TRANSACTION_LOCK("해당 계좌는 사용 중입니다."),
+    ACCOUNT_TRANSACTION_QUEUE_FULL("해당 계좌에 대기 중인 거래가 너무 많습니다."),
+    TRANSACTION_EXECUTOR_BUSY("처리 중인 거래가 너무 많습니다. 잠시 후 다시 시도해주세요."),
     TRANSACTION_NOT_FOUND("해당 거래가 없습니다."),
+    IDEMPOTENCY_KEY_IN_PROGRESS("같은 Idempotency-Key로 처리 중인 요청이 있습니다."),
+    IDEMPOTENCY_KEY_REUSED("이미 다른 요청에 사용한 Idempotency-Key 입니다."),
+    BATCH_ROLLED_BACK("같은 일괄 거래의 다른 항목이 실패해서 반영되지 않았습니다."),
+    BATCH_NOT_SUPPORTED("RESERVATION 모드에서는 일괄 거래를 지원하지 않습니다."),
     TRANSACTION_ACCOUNT_UN_MATCH("이 거래는 해당 계좌에서 발생한 거래가 아닙니다."),
     CANCEL_MUST_FULLY("부분 취소는 사용되지 않습니다."),
     TOO_OLD_ORDER_TO_CANCEL("1년이 지난 거래는 취소가 불가능합니다."),
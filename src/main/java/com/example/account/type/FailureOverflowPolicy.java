@@ -0,0 +1,7 @@
+package com.example.account.type;
+
+public enum FailureOverflowPolicy {
+    DROP_NEWEST, // 큐가 가득 차면 새 실패 기록을 버림
+    DROP_OLDEST, // 큐가 가득 차면 가장 오래된 실패 기록을 버림
+    CALLER_RUNS // 큐가 가득 차면 요청 스레드에서 바로 저장 (이전 동작)
+}
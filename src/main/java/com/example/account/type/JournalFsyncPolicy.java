@@ -0,0 +1,7 @@
+package com.example.account.type;
+
+public enum JournalFsyncPolicy {
+    ALWAYS, // append 할 때마다 디스크에 반영 (가장 느림)
+    INTERVAL, // fsync-interval 주기로 모아서 반영 (주기 안의 기록은 OS가 죽으면 잃을 수 있음)
+    NONE // OS에 맡김 (프로세스가 죽어도 남지만 OS가 죽으면 잃을 수 있음)
+}
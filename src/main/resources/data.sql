@@ -4,3 +4,5 @@ insert into account_user(id,name,created_at,updated_at)
 values(2,'Lupi',now(),now());
 insert into account_user(id,name,created_at,updated_at)
 values(3,'Eddie',now(),now());
+insert into account_number_sequence(name,next_value)
+values('ACCOUNT',0);
@@ -0,0 +1,148 @@
+package com.example.account.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 계좌번호 / 거래 번호 조회의 index 전후 비교 (./gradlew benchmark)
+ * 행 수는 -Pbenchmark.index.rows=1000000,10000000,50000000 으로 바꿀 수 있다.
+ * 파일 H2에 행을 넣고, index 없이 / index를 만든 뒤 같은 조회의 평균 시간을 잰다.
+ */
+@Tag("benchmark")
+class IndexLookupBenchmark {
+    private static final int SCAN_LOOKUPS = 10;
+    private static final int INDEXED_LOOKUPS = 10_000;
+    private static final long FIRST_ACCOUNT_NUMBER = 1_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void lookup() throws Exception {
+        for (long rows : rows()) {
+            String url = "jdbc:h2:file:" + directory.resolve("index-bench-" + rows);
+            try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+                long loadNanos = load(connection, rows);
+                System.out.printf("[%,d rows] loaded in %,d ms%n", rows, loadNanos / 1_000_000);
+
+                assertTrue(plan(connection, accountLookup(0)).contains("tablescan"));
+                report(connection, rows, "before", SCAN_LOOKUPS);
+
+                long indexNanos = createIndexes(connection);
+                System.out.printf("[%,d rows] indexes created in %,d ms%n", rows, indexNanos / 1_000_000);
+
+                assertFalse(plan(connection, accountLookup(0)).contains("tablescan"));
+                assertFalse(plan(connection, transactionLookup(0)).contains("tablescan"));
+                report(connection, rows, "after", INDEXED_LOOKUPS);
+            }
+        }
+    }
+
+    private static List<Long> rows() {
+        List<Long> rows = new ArrayList<>();
+        for (String value : System.getProperty("benchmark.index.rows", "1000000,10000000").split(",")) {
+            rows.add(Long.parseLong(value.trim()));
+        }
+        return rows;
+    }
+
+    // 엔티티와 같은 컬럼으로 account, transaction 테이블을 index 없이 만든다.
+    private static long load(Connection connection, long rows) throws Exception {
+        long startedAt = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table account (id bigint primary key, account_number varchar(255), " +
+                    "account_user_id bigint, bank varchar(255), balance bigint)");
+            statement.execute("create table transaction (id bigint primary key, transaction_id varchar(255), " +
+                    "account_id bigint, amount bigint, transacted_at timestamp)");
+            statement.execute("insert into account select x, cast(" + FIRST_ACCOUNT_NUMBER + " + x as varchar), " +
+                    "mod(x, 100000), 'KB', 1000 from system_range(0, " + (rows - 1) + ")");
+            statement.execute("insert into transaction select x, lpad(cast(x as varchar), 13, '0'), " +
+                    "mod(x, " + rows + "), 100, current_timestamp from system_range(0, " + (rows - 1) + ")");
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    // Account, Transaction 엔티티의 index와 같은 것
+    private static long createIndexes(Connection connection) throws Exception {
+        long startedAt = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table account add constraint uk_account_account_number unique (account_number)");
+            statement.execute("create index idx_account_account_user on account (account_user_id)");
+            statement.execute("alter table transaction add constraint uk_transaction_transaction_id " +
+                    "unique (transaction_id)");
+            statement.execute("create index idx_transaction_account_transacted_at " +
+                    "on transaction (account_id, transacted_at, id)");
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private static void report(Connection connection, long rows, String phase, int lookups) throws Exception {
+        double account = lookup(connection, "select * from account where account_number = ?",
+                rows, lookups, IndexLookupBenchmark::accountNumber);
+        double accountAndBank = lookup(connection,
+                "select * from account where account_number = ? and bank = 'KB'",
+                rows, lookups, IndexLookupBenchmark::accountNumber);
+        double transaction = lookup(connection, "select * from transaction where transaction_id = ?",
+                rows, lookups, IndexLookupBenchmark::transactionId);
+        System.out.printf("[%,d rows] %-6s accountNumber %10.1f us, accountNumber+bank %10.1f us, " +
+                "transactionId %10.1f us%n", rows, phase, account, accountAndBank, transaction);
+    }
+
+    // 있는 키를 무작위로 골라 조회한 평균 시간(us)
+    private static double lookup(Connection connection, String sql, long rows, int lookups, KeyFunction key)
+            throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                statement.setString(1, key.apply(ThreadLocalRandom.current().nextLong(rows)));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                }
+            }
+            return (System.nanoTime() - startedAt) / 1_000.0 / lookups;
+        }
+    }
+
+    private static String plan(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("explain " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1).toLowerCase();
+        }
+    }
+
+    private static String accountLookup(long x) {
+        return "select * from account where account_number = '" + accountNumber(x) + "'";
+    }
+
+    private static String transactionLookup(long x) {
+        return "select * from transaction where transaction_id = '" + transactionId(x) + "'";
+    }
+
+    private static String accountNumber(long x) {
+        return String.valueOf(FIRST_ACCOUNT_NUMBER + x);
+    }
+
+    private static String transactionId(long x) {
+        return String.format("%013d", x);
+    }
+
+    @FunctionalInterface
+    private interface KeyFunction {
+        String apply(long x);
+    }
+}
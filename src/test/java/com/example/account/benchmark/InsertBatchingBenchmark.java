@@ -0,0 +1,152 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.UseBalance;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRespository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AccountNumberFilter;
+import com.example.account.service.TransactionService;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import com.example.account.type.BatchMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * id 시퀀스 / JDBC batch 설정별 insert 비용 비교 (./gradlew benchmark)
+ * 이체 한 건당 prepared statement 수와 대량 insert 처리량을 잰다.
+ * (prepared statement 수에는 시퀀스 조회가 포함되고, batch로 묶인 insert/update는 하나로 센다.)
+ */
+@Tag("benchmark")
+abstract class InsertBatchingBenchmark {
+    private static final int ACCOUNTS = 200;
+    private static final int TRANSFERS = 1000;
+    private static final int BATCH_SIZE = 100;
+    private static final int BULK_ROWS = 20_000;
+    private static final long INITIAL_BALANCE = 1_000_000_000_000L;
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountNumberFilter accountNumberFilter;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    protected abstract String modeName();
+
+    @BeforeEach
+    void setUpAccounts() {
+        if (accountRepository.count() >= ACCOUNTS) {
+            return;
+        }
+        AccountUser user = accountUserRespository.findById(1L).orElseThrow(IllegalStateException::new);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(accountNumber(i))
+                    .bank(Bank.KB)
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(INITIAL_BALANCE)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        accountRepository.saveAll(accounts);
+        accounts.forEach(account -> accountNumberFilter.put(account.getAccountNumber()));
+    }
+
+    @Test
+    void singleTransfer() {
+        Statistics statistics = statistics();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            transactionService.useBalance(1L, accountNumber(i % ACCOUNTS), 10L,
+                    accountNumber((i + 1) % ACCOUNTS), "KB", "bench");
+        }
+        report("single transfer", TRANSFERS, statistics, System.nanoTime() - startedAt);
+    }
+
+    @Test
+    void batchTransfer() {
+        Statistics statistics = statistics();
+        long startedAt = System.nanoTime();
+        for (int b = 0; b < TRANSFERS / BATCH_SIZE; b++) {
+            List<UseBalance.Request> items = new ArrayList<>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                items.add(new UseBalance.Request(1L, accountNumber(i % ACCOUNTS), 10L,
+                        accountNumber((i + 1) % ACCOUNTS), "KB", "bench"));
+            }
+            transactionService.useBalanceBatch(items, BatchMode.ALL_OR_NOTHING);
+        }
+        report("batch transfer", TRANSFERS, statistics, System.nanoTime() - startedAt);
+    }
+
+    @Test
+    void bulkInsert() {
+        Account account = accountRepository.findByAccountNumber(accountNumber(0))
+                .orElseThrow(IllegalStateException::new);
+        long before = transactionRepository.count();
+        Statistics statistics = statistics();
+        long startedAt = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < BULK_ROWS; i++) {
+                transactions.add(Transaction.builder()
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .account(account)
+                        .amount(10L)
+                        .balanceSnapshot(INITIAL_BALANCE)
+                        .transactionId(modeName() + "-" + i)
+                        .transactedAt(LocalDateTime.now())
+                        .build());
+            }
+            transactionRepository.saveAll(transactions);
+        });
+        report("bulk insert", BULK_ROWS, statistics, System.nanoTime() - startedAt);
+        assertEquals(before + BULK_ROWS, transactionRepository.count());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private void report(String name, int count, Statistics statistics, long elapsedNanos) {
+        System.out.printf("[%s] %-15s statements/op=%6.2f inserts=%-6d %10.1f ops/s%n",
+                modeName(), name,
+                (double) statistics.getPrepareStatementCount() / count,
+                statistics.getEntityInsertCount(),
+                count / (elapsedNanos / 1_000_000_000.0));
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("%010d", 6_000_000_000L + index);
+    }
+}
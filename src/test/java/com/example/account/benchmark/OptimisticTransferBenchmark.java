@@ -0,0 +1,15 @@
+package com.example.account.benchmark;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:optimistic-bench;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.transaction.concurrency-mode.default=OPTIMISTIC"
+})
+class OptimisticTransferBenchmark extends TransferThroughputBenchmark {
+    @Override
+    protected String modeName() {
+        return "optimistic";
+    }
+}
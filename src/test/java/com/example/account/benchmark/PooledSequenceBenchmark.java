@@ -0,0 +1,18 @@
+package com.example.account.benchmark;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * pooled-lo 시퀀스 + JDBC batch (application.yml 기본값)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pooled-bench;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.transaction.concurrency-mode.default=LOCK"
+})
+class PooledSequenceBenchmark extends InsertBatchingBenchmark {
+    @Override
+    protected String modeName() {
+        return "pooled-lo";
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.account.benchmark;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lock-bench;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.lock.type=redis",
+        "account.lock.queue.max-depth=64",
+        "account.transaction.concurrency-mode.default=LOCK"
+})
+class RedissonLockTransferBenchmark extends TransferThroughputBenchmark {
+    @Override
+    protected String modeName() {
+        return "redisson-lock";
+    }
+}
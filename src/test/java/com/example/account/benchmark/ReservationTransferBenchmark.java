@@ -0,0 +1,37 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.BalanceReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservation-bench;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.transaction.concurrency-mode.default=LOCK",
+        "account.transaction.concurrency-mode.use=RESERVATION"
+})
+class ReservationTransferBenchmark extends TransferThroughputBenchmark {
+    @Autowired
+    private BalanceReservationService balanceReservationService;
+
+    @Override
+    protected String modeName() {
+        return "reservation";
+    }
+
+    // DB 반영이 모두 끝날 때까지 reconcile을 돌리고, 음수 잔액이 없는지 확인한다.
+    @AfterEach
+    void reconcile() throws InterruptedException {
+        BalanceReservationService.ReconcileResult result = balanceReservationService.reconcile();
+        for (int i = 0; i < 100 && result.getSkipped() > 0; i++) {
+            Thread.sleep(100);
+            result = balanceReservationService.reconcile();
+        }
+        System.out.printf("[%s] reconcile: %s%n", modeName(), result);
+        assertEquals(0, result.getSkipped());
+        assertEquals(0, result.getNegative());
+    }
+}
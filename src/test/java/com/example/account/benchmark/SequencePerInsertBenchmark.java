@@ -0,0 +1,22 @@
+package com.example.account.benchmark;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 이전 설정: insert마다 시퀀스 조회, JDBC batch 없음
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence-bench;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=0",
+        "spring.jpa.properties.hibernate.order_inserts=false",
+        "spring.jpa.properties.hibernate.order_updates=false",
+        "account.id.allocation-size=1",
+        "account.transaction.concurrency-mode.default=LOCK"
+})
+class SequencePerInsertBenchmark extends InsertBatchingBenchmark {
+    @Override
+    protected String modeName() {
+        return "sequence-per-insert";
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.SnowflakeTransactionIdGenerator;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.service.UuidTransactionIdGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 거래 번호 생성 방식 비교 (./gradlew benchmark)
+ * 1. 생성 비용 (1 스레드 / 8 스레드)
+ * 2. transactionId index에 insert 하는 비용과, 새 번호가 index 맨 뒤에 붙는 비율
+ */
+@Tag("benchmark")
+class TransactionIdBenchmark {
+    private static final int WARMUP = 1_000_000;
+    private static final int IDS = 2_000_000;
+    private static final int THREADS = 8;
+    private static final int ROWS = 200_000;
+
+    @Test
+    void generate() throws Exception {
+        for (TransactionIdGenerator generator : generators()) {
+            generate(generator, 1, WARMUP);
+            double single = generate(generator, 1, IDS);
+            double concurrent = generate(generator, THREADS, IDS);
+            System.out.printf("[%s] 1 thread %8.1f ns/id, %d threads %8.1f ns/id%n",
+                    name(generator), single, THREADS, concurrent);
+        }
+    }
+
+    @Test
+    void insert() throws Exception {
+        for (TransactionIdGenerator generator : generators()) {
+            List<String> ids = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                ids.add(generator.generate());
+            }
+            double appendRatio = appendRatio(ids);
+            long elapsedNanos = insert(name(generator), ids);
+            System.out.printf("[%s] %d rows %8.1f ms, appended to index end %5.1f%%%n",
+                    name(generator), ROWS, elapsedNanos / 1_000_000.0, appendRatio * 100);
+            if (generator instanceof SnowflakeTransactionIdGenerator) {
+                assertEquals(1.0, appendRatio);
+            }
+        }
+    }
+
+    private static List<TransactionIdGenerator> generators() {
+        return List.of(new UuidTransactionIdGenerator(), new SnowflakeTransactionIdGenerator(1));
+    }
+
+    // 한 번호를 만드는 데 걸린 평균 시간(ns)
+    private static double generate(TransactionIdGenerator generator, int threads, int count) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        long startedAt = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                int length = 0;
+                for (int i = 0; i < count / threads; i++) {
+                    length += generator.generate().length();
+                }
+                return length;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        return (double) elapsedNanos / count;
+    }
+
+    // 앞의 모든 번호보다 큰 번호의 비율 (1.0이면 항상 index 맨 뒤에 추가)
+    private static double appendRatio(List<String> ids) {
+        String max = "";
+        int appended = 0;
+        for (String id : ids) {
+            if (id.compareTo(max) > 0) {
+                max = id;
+                appended++;
+            }
+        }
+        return (double) appended / ids.size();
+    }
+
+    private static long insert(String name, List<String> ids) throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:id-bench-" + name, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table transaction_id_bench (" +
+                        "id bigint auto_increment primary key, transaction_id varchar(32))");
+                statement.execute("create index idx_transaction_id on transaction_id_bench (transaction_id)");
+            }
+            connection.setAutoCommit(false);
+            long startedAt = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into transaction_id_bench (transaction_id) values (?)")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    insert.setString(1, ids.get(i));
+                    insert.addBatch();
+                    if (i % 1000 == 999) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            return System.nanoTime() - startedAt;
+        }
+    }
+
+    private static String name(TransactionIdGenerator generator) {
+        return generator instanceof SnowflakeTransactionIdGenerator ? "snowflake" : "uuid";
+    }
+}
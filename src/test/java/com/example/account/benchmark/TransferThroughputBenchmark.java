@@ -0,0 +1,123 @@
+package com.example.account.benchmark;
+
+import com.example.account.controller.TransactionController;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.UseBalance;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRespository;
+import com.example.account.service.AccountNumberFilter;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 동시성 제어 방식별 이체 처리량 비교 (./gradlew benchmark)
+ * 계좌 1000개 중 이체에 쓰이는 계좌 수(hot set)를 줄여가며 경합을 높인다.
+ * hot = 1 이면 모든 이체가 한 계좌에서 출금된다.
+ */
+@Tag("benchmark")
+abstract class TransferThroughputBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final int CLIENTS = 16;
+    private static final int TRANSFERS_PER_CLIENT = 250;
+    private static final long INITIAL_BALANCE = 1_000_000_000_000L;
+
+    @Autowired
+    private TransactionController transactionController;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+    @Autowired
+    private AccountNumberFilter accountNumberFilter;
+
+    protected abstract String modeName();
+
+    @BeforeEach
+    void setUpAccounts() {
+        if (accountRepository.count() >= ACCOUNTS) {
+            return;
+        }
+        AccountUser user = accountUserRespository.findById(1L).orElseThrow(IllegalStateException::new);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(accountNumber(i))
+                    .bank(Bank.KB)
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(INITIAL_BALANCE)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        accountRepository.saveAll(accounts);
+        // 리포지토리로 바로 만든 계좌는 필터에 직접 넣어야 이체가 거절되지 않는다.
+        accounts.forEach(account -> accountNumberFilter.put(account.getAccountNumber()));
+    }
+
+    @ParameterizedTest(name = "hot accounts = {0}")
+    @ValueSource(ints = {1000, 100, 10, 2, 1})
+    void transferThroughput(int hotAccounts) throws Exception {
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failure = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long startedAt = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_CLIENT; i++) {
+                    int from = random.nextInt(hotAccounts);
+                    int to = hotAccounts == 1
+                            ? 1 + random.nextInt(ACCOUNTS - 1)
+                            : (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+                    try {
+                        transactionController.useBalanceAsync(new UseBalance.Request(
+                                1L, accountNumber(from), 10L, accountNumber(to), "KB", "bench"))
+                                .join();
+                        success.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failure.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        clients.shutdown();
+
+        int total = CLIENTS * TRANSFERS_PER_CLIENT;
+        System.out.printf("[%s] hot=%-5d ok=%-6d failed=%-6d %10.1f transfers/s%n",
+                modeName(), hotAccounts, success.get(), failure.get(),
+                success.get() / (elapsedNanos / 1_000_000_000.0));
+        assertEquals(total, success.get() + failure.get());
+        // 이체는 잔액 합계를 바꾸지 않는다. (lost update가 없어야 함)
+        assertEquals(ACCOUNTS * INITIAL_BALANCE, accountRepository.findAll().stream()
+                .mapToLong(Account::getBalance)
+                .sum());
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("%010d", 5_000_000_000L + index);
+    }
+}
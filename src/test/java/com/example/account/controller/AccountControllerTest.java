@@ -1,7 +1,8 @@
 package com.example.account.controller;
 
-import com.example.account.domain.Account;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountView;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.exception.AccountException;
@@ -98,9 +99,13 @@ class AccountControllerTest {
     void successGetAccount() throws Exception {
         // given
         given(accountService.getAccount(anyLong()))
-                .willReturn(Account.builder()
+                .willReturn(AccountView.builder()
+                        .id(876L)
+                        .userId(1L)
                         .accountNumber("3456")
                         .accountStatus(AccountStatus.IN_USE)
+                        .balance(1000L)
+                        .version(3L)
                         .build());
         // when
         // then
@@ -108,6 +113,8 @@ class AccountControllerTest {
                 .andDo(print())
                 .andExpect(jsonPath("$.accountNumber").value("3456"))
                 .andExpect(jsonPath("$.accountStatus").value("IN_USE"))
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.version").doesNotExist())
                 .andExpect(status().isOk());
     }
     @Test
@@ -150,4 +157,21 @@ class AccountControllerTest {
                 .andExpect(status().isOk());
     }
 
-}
\ No newline at end of file
+    @Test
+    void successGetBalance() throws Exception {
+        // given
+        given(accountService.getBalance("1234567890"))
+                .willReturn(AccountBalance.builder()
+                        .accountNumber("1234567890")
+                        .balance(5000L)
+                        .build());
+        // when
+        // then
+        mockMvc.perform(get("/account/1234567890/balance"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balance").value(5000));
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.example.account.controller;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRespository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AccountNumberFilter;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 조회 API가 보내는 SQL 수 상한 (캐시가 비어 있는 첫 요청 기준)
+ * 응답 행 수에 따라 SQL이 늘어나면(N+1) 실패한다.
+ * 읽기 모델을 끄고 DB에서 읽는 경로를 잰다. (모델이 오래됐을 때의 경로)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:read-statement-count;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.read-model.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadStatementCountTest {
+    private static final int ACCOUNTS = 10;
+    private static final int TRANSACTIONS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountNumberFilter accountNumberFilter;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (accountRepository.count() >= ACCOUNTS) {
+            return;
+        }
+        AccountUser user = accountUserRespository.findById(2L).orElseThrow(IllegalStateException::new);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(accountNumber(i))
+                    .bank(Bank.KB)
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(1000L)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        accountRepository.saveAll(accounts);
+        accounts.forEach(account -> accountNumberFilter.put(account.getAccountNumber()));
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transactions.add(Transaction.builder()
+                    .transactionType(USE)
+                    .transactionResultType(S)
+                    .account(accounts.get(i % ACCOUNTS))
+                    .amount(10L)
+                    .balanceSnapshot(990L)
+                    .transactionId("read-count-" + i)
+                    .transactedAt(LocalDateTime.now())
+                    .build());
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @Test
+    void getAccountsByUserId() throws Exception {
+        // 사용자 확인 1 + 계좌 목록 1
+        assertStatements(2, get("/account").param("user_id", "2"));
+    }
+
+    @Test
+    void getAccount() throws Exception {
+        Long id = accountRepository.findByAccountNumber(accountNumber(0))
+                .orElseThrow(IllegalStateException::new)
+                .getId();
+        // 계좌 1 (소유주는 id만)
+        assertStatements(1, get("/account/" + id));
+    }
+
+    @Test
+    void queryTransaction() throws Exception {
+        assertStatements(1, get("/transaction/read-count-1"));
+    }
+
+    @Test
+    void getTransactionHistory() throws Exception {
+        // 계좌 정보 1 + 거래 내역 1
+        assertStatements(2, get("/account/" + accountNumber(2) + "/transactions"));
+    }
+
+    private void assertStatements(int max, RequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").exists());
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= max, "statements: " + statements + " > " + max);
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("%010d", 8_000_000_000L + index);
+    }
+}
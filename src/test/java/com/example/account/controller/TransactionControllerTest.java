@@ -1,9 +1,17 @@
 package com.example.account.controller;
 
 import com.example.account.dto.CancelBalance;
+import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.TransactionHistoryItem;
 import com.example.account.dto.TransactionDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionHistoryService;
 import com.example.account.service.TransactionService;
+import com.example.account.type.BatchMode;
+import com.example.account.type.ErrorCode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,11 +21,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
+import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.USE;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -29,6 +42,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
+    @MockBean
+    private FailedTransactionRecorder failedTransactionRecorder;
+    @MockBean
+    private TransactionHistoryService transactionHistoryService;
     @Autowired
     private MockMvc mockMvc;
 
@@ -87,11 +104,48 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.amount").value(54321));
     }
 
+    @Test
+    void successUseBalanceBatch() throws Exception {
+        // given
+        given(transactionService.useBalanceBatch(anyList(), eq(BatchMode.BEST_EFFORT)))
+                .willReturn(Arrays.asList(
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactionResultType(S)
+                                .transactionId("transactionId")
+                                .amount(1000L)
+                                .build(),
+                        TransactionDto.builder()
+                                .accountNumber("1000000001")
+                                .transactionResultType(F)
+                                .errorCode(ErrorCode.AMOUNT_EXCEED_BALANCE)
+                                .amount(2000L)
+                                .build()));
+        // when
+        // then
+        mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(BatchMode.BEST_EFFORT, Arrays.asList(
+                                        new UseBalance.Request(1L, "1000000000", 1000L,
+                                                "2000000000", "KB", "급여"),
+                                        new UseBalance.Request(1L, "1000000001", 2000L,
+                                                "2000000000", "KB", "급여")))
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("BEST_EFFORT"))
+                .andExpect(jsonPath("$.successCount").value(1))
+                .andExpect(jsonPath("$.failureCount").value(1))
+                .andExpect(jsonPath("$.items[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.items[1].errorCode").value("AMOUNT_EXCEED_BALANCE"));
+    }
+
     @Test
     void successQueryTransaction() throws Exception {
         // given
         given(transactionService.queryTransaction(anyString()))
-                .willReturn(TransactionDto.builder()
+                .willReturn(QueryTransactionResponse.builder()
                         .accountNumber("1000000000")
                         .transactionType(USE)
                         .transactedAt(LocalDateTime.now())
@@ -112,4 +166,36 @@ class TransactionControllerTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void successGetTransactionHistory() throws Exception {
+        // given
+        given(transactionHistoryService.getTransactionHistory(
+                eq("1000000000"), eq(USE), isNull(), eq("cursor"), eq(1)))
+                .willReturn(TransactionHistory.builder()
+                        .accountNumber("1000000000")
+                        .transactions(Arrays.asList(TransactionHistoryItem.builder()
+                                .id(7L)
+                                .transactionId("transactionId")
+                                .transactionType(USE)
+                                .transactionResultType(S)
+                                .amount(1000L)
+                                .transactedAt(LocalDateTime.now())
+                                .build()))
+                        .nextCursor("nextCursor")
+                        .build());
+        // when
+        // then
+        mockMvc.perform(get("/account/1000000000/transactions")
+                        .param("type", "USE")
+                        .param("cursor", "cursor")
+                        .param("size", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactions[0].amount").value(1000))
+                .andExpect(jsonPath("$.transactions[0].id").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("nextCursor"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.account.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AccountUser 2차 캐시
+ * 캐시가 채워진 뒤 반복 조회는 SQL을 보내지 않아야 한다. (data.sql의 사용자 1, 2, 3)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:account-user-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountUserCacheTest {
+    private static final List<Long> USER_IDS = Arrays.asList(1L, 2L, 3L);
+    private static final int THREADS = 8;
+    private static final int LOOKUPS_PER_THREAD = 1000;
+
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void repeatedFindByIdIssuesNoSql() throws Exception {
+        // given
+        USER_IDS.forEach(accountUserRespository::findById);
+        statistics.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                    assertTrue(accountUserRespository.findById(USER_IDS.get(i % USER_IDS.size())).isPresent());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        // then
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(THREADS * LOOKUPS_PER_THREAD, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getSecondLevelCacheMissCount());
+    }
+
+    @Test
+    void repeatedFindAllByIdIssuesNoSql() {
+        // given
+        accountUserRespository.findAllById(USER_IDS);
+        statistics.clear();
+        // when
+        for (int i = 0; i < 100; i++) {
+            assertEquals(3, accountUserRespository.findAllById(USER_IDS).size());
+        }
+        // then
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(100, statistics.getQueryCacheHitCount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.Bank;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 엔티티 id가 엔티티별 시퀀스에서 allocation-size 단위로 할당되는지 확인한다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:id-sequence;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.id.allocation-size=20"
+})
+class EntityIdSequenceTest {
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void allocateIdsInBlocks() {
+        // given
+        AccountUser user = accountUserRespository.findById(1L).orElseThrow(IllegalStateException::new);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            accounts.add(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(String.format("%010d", 7_000_000_000L + i))
+                    .bank(Bank.KB)
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(0L)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        // when
+        accountRepository.saveAll(accounts);
+        // then
+        assertEquals(20L, jdbcTemplate.queryForObject(
+                "select increment from information_schema.sequences where sequence_name = 'ACCOUNT_SEQ'",
+                Long.class));
+        // 30개에 시퀀스는 두 번만 읽는다. (pooled-lo: 1, 21)
+        assertEquals(41L, jdbcTemplate.queryForObject(
+                "select base_value from information_schema.sequences where sequence_name = 'ACCOUNT_SEQ'",
+                Long.class));
+        for (int i = 1; i < accounts.size(); i++) {
+            assertEquals(accounts.get(i - 1).getId() + 1, accounts.get(i).getId());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.account.repository;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.type.Bank;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 자주 쓰는 조회가 index를 타는지 H2 실행 계획으로 확인한다.
+ * repository를 실제로 호출해서 hibernate가 만든 SQL을 잡고, 그 SQL을 같은 인자로 EXPLAIN 한다.
+ * (엔티티에서 index가 빠지거나 쿼리가 바뀌어서 tableScan이 되면 실패)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-plan;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.account.repository.IndexPlanTest$SqlCapture"
+})
+class IndexPlanTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        SqlCapture.clear();
+    }
+
+    @Test
+    void findByAccountNumber() {
+        accountRepository.findByAccountNumber("1000000000");
+        assertIndex("uk_account_account_number", lastSelect(), "1000000000");
+    }
+
+    @Test
+    void findByAccountNumberAndBank() {
+        accountRepository.findByAccountNumberAndBank("1000000000", Bank.KB);
+        assertIndex("uk_account_account_number", lastSelect(), "1000000000", Bank.KB.name());
+    }
+
+    @Test
+    void findByAccountUser() {
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(1L);
+        accountRepository.findByAccountUser(user);
+        assertNoTableScan(lastSelect(), 1L);
+    }
+
+    @Test
+    void findByTransactionId() {
+        transactionRepository.findByTransactionId("transactionId");
+        assertIndex("uk_transaction_transaction_id", lastSelect(), "transactionId");
+    }
+
+    @Test
+    void findQueryResponseByTransactionId() {
+        transactionRepository.findQueryResponseByTransactionId("transactionId");
+        assertIndex("uk_transaction_transaction_id", lastSelect(), "transactionId");
+    }
+
+    @Test
+    void transactionHistory() {
+        LocalDateTime cursor = LocalDateTime.of(2024, 1, 1, 0, 0);
+        transactionRepository.findHistoryBefore(1L, null, null, cursor, 100L, PageRequest.of(0, 21));
+        // account_id, type(is null, =), result(is null, =), transacted_at(<=, <, =), id, limit
+        String plan = explain(lastSelect(), 1L, null, null, null, null, cursor, cursor, cursor, 100L, 21);
+        assertFalse(plan.contains("tablescan"), plan);
+        // index 조건(/* index: 조건 */)에 account_id 뿐 아니라 transacted_at 범위가 들어가야 한다.
+        Matcher condition = Pattern.compile("idx_transaction_account_transacted_at[^:]*:([^*]*)\\*/")
+                .matcher(plan.replace("\"", ""));
+        assertTrue(condition.find(), plan);
+        assertTrue(condition.group(1).contains("account_id ="), plan);
+        assertTrue(condition.group(1).contains("transacted_at <="), plan);
+    }
+
+    private void assertIndex(String indexName, String sql, Object... args) {
+        String plan = explain(sql, args);
+        assertFalse(plan.contains("tablescan"), plan);
+        // unique 제약의 index 이름은 H2가 뒤에 접미사를 붙인다.
+        assertTrue(plan.contains(indexName), plan);
+    }
+
+    private void assertNoTableScan(String sql, Object... args) {
+        String plan = explain(sql, args);
+        assertFalse(plan.contains("tablescan"), plan);
+    }
+
+    private String explain(String sql, Object... args) {
+        assertEquals(sql.chars().filter(c -> c == '?').count(), args.length, sql);
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, args).toLowerCase();
+    }
+
+    private static String lastSelect() {
+        List<String> statements = SqlCapture.statements();
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            if (statements.get(i).trim().toLowerCase().startsWith("select")) {
+                return statements.get(i);
+            }
+        }
+        return fail("No select statement captured: " + statements);
+    }
+
+    /**
+     * hibernate가 실행하는 SQL을 테스트 스레드별로 모은다. (스케줄 작업의 SQL은 섞이지 않게)
+     */
+    public static class SqlCapture implements StatementInspector {
+        private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get().add(sql);
+            return sql;
+        }
+
+        static List<String> statements() {
+            return STATEMENTS.get();
+        }
+
+        static void clear() {
+            STATEMENTS.get().clear();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountUserRespository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 같은 사용자가 동시에 계좌를 만들어도 10개를 넘지 않는다. (data.sql의 사용자 3)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:account-count;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountCountConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int CREATES_PER_THREAD = 3;
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountUserRespository accountUserRespository;
+
+    @Test
+    void limitAccountsUnderConcurrentCreation() throws Exception {
+        // given
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CREATES_PER_THREAD; i++) {
+                    try {
+                        accountService.createAccount(3L, 0L, "KB");
+                        created.incrementAndGet();
+                    } catch (AccountException e) {
+                        assertEquals(ErrorCode.MAX_COUNT_PER_USER, e.getErrorCode());
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        // then
+        assertEquals(10, created.get());
+        assertEquals(THREADS * CREATES_PER_THREAD - 10, rejected.get());
+        assertEquals(10, accountService.getAccountsByUserId(3L).size());
+        assertEquals(10, accountUserRespository.findById(3L).get().getAccountCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountMetadata;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.Bank;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountMetadataCacheTest {
+    @Mock
+    private AccountRepository accountRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void readThrough() {
+        // given
+        AccountMetadataCache cache = new AccountMetadataCache(accountRepository, meterRegistry, 100, 60000);
+        given(accountRepository.findMetadataByAccountNumber("1000000000"))
+                .willReturn(Optional.of(metadata()));
+        // when
+        cache.get("1000000000");
+        AccountMetadata metadata = cache.get("1000000000").get();
+        // then
+        verify(accountRepository, times(1)).findMetadataByAccountNumber("1000000000");
+        assertEquals(1L, metadata.getId());
+        assertEquals(12L, metadata.getUserId());
+        assertEquals("Pobi", metadata.getUserName());
+        assertEquals(Bank.KB, metadata.getBank());
+        assertEquals(IN_USE, metadata.getAccountStatus());
+        assertEquals(0.5, meterRegistry.get("account.metadata.cache.hit-ratio").gauge().value());
+    }
+
+    @Test
+    void doNotCacheMissingAccount() {
+        // given
+        AccountMetadataCache cache = new AccountMetadataCache(accountRepository, meterRegistry, 100, 60000);
+        given(accountRepository.findMetadataByAccountNumber("1000000000"))
+                .willReturn(Optional.empty())
+                .willReturn(Optional.of(metadata()));
+        // when
+        Optional<AccountMetadata> missing = cache.get("1000000000");
+        Optional<AccountMetadata> created = cache.get("1000000000");
+        // then
+        assertFalse(missing.isPresent());
+        assertTrue(created.isPresent());
+    }
+
+    @Test
+    void reloadAfterInvalidate() {
+        // given
+        AccountMetadataCache cache = new AccountMetadataCache(accountRepository, meterRegistry, 100, 60000);
+        given(accountRepository.findMetadataByAccountNumber("1000000000"))
+                .willReturn(Optional.of(metadata()));
+        cache.get("1000000000");
+        // when
+        cache.invalidate("1000000000");
+        cache.get("1000000000");
+        // then
+        verify(accountRepository, times(2)).findMetadataByAccountNumber("1000000000");
+    }
+
+    private static AccountMetadata metadata() {
+        return AccountMetadata.builder()
+                .id(1L)
+                .accountNumber("1000000000")
+                .userId(12L)
+                .userName("Pobi")
+                .bank(Bank.KB)
+                .accountStatus(IN_USE)
+                .build();
+    }
+}
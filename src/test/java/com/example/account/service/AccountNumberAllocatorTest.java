@@ -0,0 +1,91 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountNumberSequence;
+import com.example.account.repository.AccountNumberSequenceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberAllocatorTest {
+    @Mock
+    private AccountNumberSequenceRepository accountNumberSequenceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void allocateFromReservedBlocks() {
+        // given
+        AccountNumberSequence sequence = AccountNumberSequence.builder()
+                .name(AccountNumberAllocator.SEQUENCE_NAME)
+                .nextValue(0L)
+                .build();
+        given(accountNumberSequenceRepository.findByNameForUpdate(AccountNumberAllocator.SEQUENCE_NAME))
+                .willReturn(Optional.of(sequence));
+        AccountNumberAllocator allocator = allocator(100);
+        // when
+        Set<String> accountNumbers = new HashSet<>();
+        for (int i = 0; i < 250; i++) {
+            accountNumbers.add(allocator.allocate());
+        }
+        // then
+        assertEquals(250, accountNumbers.size());
+        assertEquals(300L, sequence.getNextValue());
+        verify(accountNumberSequenceRepository, times(3)).save(any());
+        for (String accountNumber : accountNumbers) {
+            assertTrue(AccountNumberAllocator.isValid(accountNumber), accountNumber);
+        }
+    }
+
+    @Test
+    void permuteIsOneToOne() {
+        // given
+        AccountNumberAllocator allocator = allocator(1000);
+        Set<Long> permuted = new HashSet<>();
+        // when
+        for (long i = 0; i < 100_000; i++) {
+            long value = allocator.permute(i);
+            assertTrue(value >= 0 && value < 100_000_000L);
+            permuted.add(value);
+        }
+        // then
+        assertEquals(100_000, permuted.size());
+        // 연속한 순번이 연속한 번호가 되지 않는다.
+        assertNotEquals(allocator.permute(0) + 1, allocator.permute(1));
+    }
+
+    @Test
+    void rejectInvalidAccountNumber() {
+        assertTrue(AccountNumberAllocator.isValid("9018379645"));
+        // 한 자리가 틀리면 검증 숫자가 맞지 않는다.
+        assertFalse(AccountNumberAllocator.isValid("9018379655"));
+        // 기존 형식, 길이가 다른 번호
+        assertFalse(AccountNumberAllocator.isValid("1234567890"));
+        assertFalse(AccountNumberAllocator.isValid("901837964"));
+        assertFalse(AccountNumberAllocator.isValid(null));
+    }
+
+    @Test
+    void failWithoutSecret() {
+        assertThrows(IllegalStateException.class, () -> new AccountNumberAllocator(
+                accountNumberSequenceRepository, transactionManager, 1000, ""));
+        assertThrows(IllegalStateException.class, () -> new AccountNumberAllocator(
+                accountNumberSequenceRepository, transactionManager, 1000, "not-a-number"));
+    }
+
+    private AccountNumberAllocator allocator(int blockSize) {
+        return new AccountNumberAllocator(accountNumberSequenceRepository, transactionManager, blockSize, "42");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisConnectionException;
+import org.redisson.client.codec.Codec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberFilterTest {
+    private static final int ACCOUNTS = 10_000;
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ObjectProvider<RedissonClient> redissonClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void passUntilPopulated() {
+        // given
+        AccountNumberFilter filter = filter("local");
+        // when
+        boolean mightContain = filter.mightContain("1000000000");
+        // then
+        assertTrue(mightContain);
+    }
+
+    @Test
+    void rejectUnknownAccountNumber() {
+        // given
+        AccountNumberFilter filter = filter("local");
+        given(accountRepository.streamAllAccountNumbers())
+                .willReturn(IntStream.range(0, ACCOUNTS).mapToObj(AccountNumberFilterTest::accountNumber));
+        // when
+        filter.populate();
+        filter.put("9999999999");
+        // then
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertTrue(filter.mightContain(accountNumber(i)));
+        }
+        assertTrue(filter.mightContain("9999999999"));
+        int falsePositives = 0;
+        for (int i = ACCOUNTS; i < ACCOUNTS * 2; i++) {
+            if (filter.mightContain(accountNumber(i))) {
+                falsePositives++;
+            }
+        }
+        // 설정한 1%의 두 배 안쪽
+        assertTrue(falsePositives < ACCOUNTS * 0.02, "false positives: " + falsePositives);
+        assertEquals(ACCOUNTS - falsePositives,
+                meterRegistry.get("account.bloom.rejected").counter().count());
+        assertTrue(meterRegistry.get("account.bloom.size.bytes").gauge().value() > 0);
+        assertTrue(filter.estimatedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    void retryPutAndPropagateFailure() {
+        // given
+        RedissonClient client = mock(RedissonClient.class);
+        RBloomFilter<String> bloomFilter = mock(RBloomFilter.class);
+        given(redissonClient.getObject()).willReturn(client);
+        given(client.<String>getBloomFilter(anyString(), any(Codec.class))).willReturn(bloomFilter);
+        AccountNumberFilter filter = filter("redis");
+        given(bloomFilter.add("1000000000"))
+                .willThrow(new RedisConnectionException("down"))
+                .willReturn(true);
+        given(bloomFilter.add("2000000000"))
+                .willThrow(new RedisConnectionException("down"));
+        // when
+        filter.put("1000000000");
+        // then
+        assertThrows(RedisConnectionException.class, () -> filter.put("2000000000"));
+        verify(bloomFilter, times(2)).add("1000000000");
+        verify(bloomFilter, times(2)).add("2000000000");
+    }
+
+    @Test
+    void passAllWhenDisabled() {
+        // given
+        AccountNumberFilter filter = filter("none");
+        // when
+        filter.populate();
+        // then
+        assertTrue(filter.mightContain("1000000000"));
+    }
+
+    private AccountNumberFilter filter(String type) {
+        return new AccountNumberFilter(accountRepository, transactionManager, redissonClient,
+                meterRegistry, type, ACCOUNTS, 0.01);
+    }
+
+    private static String accountNumber(int i) {
+        return String.format("1%09d", i);
+    }
+}
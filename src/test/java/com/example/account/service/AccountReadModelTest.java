@@ -0,0 +1,239 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.AccountView;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRespository;
+import com.example.account.type.AccountStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RFuture;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.api.listener.StatusListener;
+import org.redisson.client.codec.Codec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountReadModelTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountUserRespository accountUserRespository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ObjectProvider<RedissonClient> redissonClientProvider;
+    @Mock
+    private RedissonClient redissonClient;
+    @Mock
+    private RTopic topic;
+    @Mock
+    private RFuture<Long> published;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rebuildFromStream() {
+        // given
+        AccountReadModel readModel = readModel(60000);
+        given(accountUserRespository.streamAllIds()).willReturn(Stream.of(1L, 2L));
+        given(accountRepository.streamAllViews()).willReturn(Stream.of(
+                view(10L, 1L, 1000L, 0L),
+                view(11L, 1L, 2000L, 0L)));
+        // when
+        readModel.rebuild();
+        // then
+        assertTrue(readModel.isReady());
+        List<AccountView> accounts = readModel.findByUserId(1L).get();
+        assertEquals(2, accounts.size());
+        assertEquals(10L, accounts.get(0).getId());
+        assertEquals(2000L, accounts.get(1).getBalance());
+        // 계좌가 없는 사용자는 빈 목록, 모르는 사용자는 empty
+        assertTrue(readModel.findByUserId(2L).get().isEmpty());
+        assertFalse(readModel.findByUserId(3L).isPresent());
+        assertEquals(2.0, meterRegistry.get("account.read-model.accounts").gauge().value());
+    }
+
+    @Test
+    void notReadyWhenStale() {
+        // given
+        AccountReadModel readModel = readModel(0);
+        given(accountUserRespository.streamAllIds()).willReturn(Stream.empty());
+        given(accountRepository.streamAllViews()).willReturn(Stream.empty());
+        // when
+        readModel.rebuild();
+        // then
+        assertFalse(readModel.isReady());
+    }
+
+    @Test
+    void notReadyBeforeRebuild() {
+        assertFalse(readModel(60000).isReady());
+        assertEquals(-1.0, meterRegistry.get("account.read-model.refresh.age").gauge().value());
+    }
+
+    @Test
+    void updateWithNewerVersion() {
+        // given
+        AccountReadModel readModel = readModel(60000);
+        readModel.putAfterCommit(view(10L, 1L, 1000L, 0L));
+        Account account = account(10L, 700L, 1L);
+        // when
+        readModel.updateAfterCommit(Collections.singletonList(account));
+        // then
+        AccountView view = readModel.findById(10L).get();
+        assertEquals(700L, view.getBalance());
+        assertEquals(1L, view.getUserId());
+        assertEquals(1L, view.getVersion());
+        assertEquals(2.0, updates("applied"));
+    }
+
+    @Test
+    void ignoreOlderVersion() {
+        // given
+        AccountReadModel readModel = readModel(60000);
+        readModel.putAfterCommit(view(10L, 1L, 500L, 2L));
+        // when
+        readModel.updateAfterCommit(Collections.singletonList(account(10L, 700L, 1L)));
+        // then
+        assertEquals(500L, readModel.findById(10L).get().getBalance());
+        assertEquals(1.0, updates("stale"));
+    }
+
+    @Test
+    void reloadAfterBulkUpdate() {
+        // given
+        AccountReadModel readModel = readModel(60000);
+        readModel.putAfterCommit(view(10L, 1L, 1000L, 0L));
+        readModel.putAfterCommit(view(11L, 2L, 0L, 0L));
+        given(accountRepository.findViewsByIdIn(Arrays.asList(10L, 11L)))
+                .willReturn(Arrays.asList(view(10L, 1L, 800L, 1L), view(11L, 2L, 200L, 1L)));
+        // when
+        readModel.reloadAfterCommit(Arrays.asList(10L, 11L));
+        // then
+        assertEquals(800L, readModel.findById(10L).get().getBalance());
+        assertEquals(200L, readModel.findById(11L).get().getBalance());
+    }
+
+    @Test
+    void missingAccountIsLeftForRefresh() {
+        // given
+        AccountReadModel readModel = readModel(60000);
+        // when
+        readModel.updateAfterCommit(Collections.singletonList(account(10L, 700L, 1L)));
+        // then
+        assertFalse(readModel.findById(10L).isPresent());
+        assertEquals(1.0, updates("missing"));
+    }
+
+    @Test
+    void publishCommittedView() {
+        // given
+        AccountReadModel readModel = readModelWithTopic();
+        given(topic.publishAsync(any())).willReturn(published);
+        ArgumentCaptor<AccountReadModel.Update> captor = ArgumentCaptor.forClass(AccountReadModel.Update.class);
+        // when
+        readModel.putAfterCommit(view(10L, 1L, 1000L, 0L));
+        // then
+        verify(topic).publishAsync(captor.capture());
+        assertEquals(10L, captor.getValue().getView().getId());
+        assertEquals(1000L, captor.getValue().getView().getBalance());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyRemoteUpdateWithVersionCheck() {
+        // given
+        AccountReadModel readModel = readModelWithTopic();
+        ArgumentCaptor<MessageListener<AccountReadModel.Update>> listener =
+                ArgumentCaptor.forClass(MessageListener.class);
+        verify(topic).addListener(eq(AccountReadModel.Update.class), listener.capture());
+        long now = System.currentTimeMillis();
+        // when
+        listener.getValue().onMessage("topic",
+                new AccountReadModel.Update("other-node", view(10L, 1L, 700L, 2L), now));
+        listener.getValue().onMessage("topic",
+                new AccountReadModel.Update("other-node", view(10L, 1L, 1000L, 1L), now));
+        // then
+        assertEquals(700L, readModel.findById(10L).get().getBalance());
+        assertEquals(1.0, updates("remote"));
+        assertEquals(2L, meterRegistry.get("account.read-model.topic.lag").timer().count());
+    }
+
+    @Test
+    void notReadyUntilResyncedAfterResubscribe() {
+        // given
+        AccountReadModel readModel = readModelWithTopic();
+        ArgumentCaptor<StatusListener> listener = ArgumentCaptor.forClass(StatusListener.class);
+        verify(topic).addListener(listener.capture());
+        given(accountUserRespository.streamAllIds()).willAnswer(invocation -> Stream.empty());
+        given(accountRepository.streamAllViews()).willAnswer(invocation -> Stream.empty());
+        listener.getValue().onSubscribe("topic");
+        readModel.rebuild();
+        assertTrue(readModel.isReady());
+        // when
+        listener.getValue().onUnsubscribe("topic");
+        assertFalse(readModel.isReady());
+        listener.getValue().onSubscribe("topic");
+        assertFalse(readModel.isReady());
+        readModel.resyncIfRequired();
+        // then
+        assertTrue(readModel.isReady());
+    }
+
+    private AccountReadModel readModel(long maxStaleness) {
+        return new AccountReadModel(accountRepository, accountUserRespository, transactionManager,
+                meterRegistry, redissonClientProvider, true, maxStaleness, false);
+    }
+
+    private AccountReadModel readModelWithTopic() {
+        given(redissonClientProvider.getObject()).willReturn(redissonClient);
+        given(redissonClient.getTopic(eq("ACCOUNT_READ_MODEL"), any(Codec.class))).willReturn(topic);
+        return new AccountReadModel(accountRepository, accountUserRespository, transactionManager,
+                meterRegistry, redissonClientProvider, true, 60000, true);
+    }
+
+    private double updates(String result) {
+        return meterRegistry.get("account.read-model.updates").tag("result", result).counter().count();
+    }
+
+    private static AccountView view(Long id, Long userId, Long balance, Long version) {
+        return AccountView.builder()
+                .id(id)
+                .userId(userId)
+                .accountNumber("10000000" + id)
+                .accountStatus(IN_USE)
+                .balance(balance)
+                .version(version)
+                .build();
+    }
+
+    private static Account account(Long id, Long balance, Long version) {
+        Account account = Account.builder()
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .version(version)
+                .build();
+        account.setId(id);
+        return account;
+    }
+}
@@ -3,11 +3,13 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountView;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountUserRespository;
 import com.example.account.type.AccountStatus;
 import com.example.account.repository.AccountRepository;
 import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,12 +18,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -31,10 +36,26 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRespository accountUserRespository;
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+    @Mock
+    private AccountNumberFilter accountNumberFilter;
+    @Mock
+    private AccountMetadataCache accountMetadataCache;
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private AccountReadModel accountReadModel;
 
     @InjectMocks // 위에서 만든 mock을 주입시켜줌.
     private AccountService accountService;
 
+    @BeforeEach
+    void setUp() {
+        // 필터는 기본으로 통과 (있을 수도 있음)
+        lenient().when(accountNumberFilter.mightContain(any())).thenReturn(true);
+    }
+
     @Test
     void createAccountSuccess(){
         // given
@@ -42,7 +63,7 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         user.setId(12L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(user));
         given(accountRepository.findFirstByOrderByIdDesc())
                 .willReturn(Optional.of(Account.builder()
@@ -66,6 +87,35 @@ class AccountServiceTest {
 
     }
 
+    @Test
+    @DisplayName("발급한 계좌번호로 바로 저장 (중복 확인 쿼리 없음)")
+    void createAccount_allocatedNumber(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(12L);
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberAllocator.allocate())
+                .willReturn("9018379645");
+        given(accountRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<Account> captor = ArgumentCaptor.forClass(Account.class);
+        // when
+        AccountDto accountDto = accountService.createAccount(1L, 1000L, "KB");
+        // then
+        verify(accountRepository, times(1)).save(captor.capture());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        assertEquals("9018379645", captor.getValue().getAccountNumber());
+        assertEquals("9018379645", accountDto.getAccountNumber());
+        verify(ledgerService, times(1)).open(captor.getValue());
+        ArgumentCaptor<AccountView> viewCaptor = ArgumentCaptor.forClass(AccountView.class);
+        verify(accountReadModel, times(1)).putAfterCommit(viewCaptor.capture());
+        assertEquals(12L, viewCaptor.getValue().getUserId());
+        assertEquals("9018379645", viewCaptor.getValue().getAccountNumber());
+    }
+
     @Test
     void createAccountFirst(){
         // given
@@ -73,7 +123,7 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         user.setId(12L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(user));
         given(accountRepository.findFirstByOrderByIdDesc())
                 .willReturn(Optional.empty());
@@ -98,7 +148,7 @@ class AccountServiceTest {
     @DisplayName("해당 유저 없음 - 계좌 생성 실패")
     void createAccount_UserNotFound(){
         // given
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.empty());
 
         // when
@@ -114,15 +164,14 @@ class AccountServiceTest {
     void createAccount_maxAccountIs10(){
         // given
         AccountUser user = AccountUser.builder()
-                .name("Pobi").build();
+                .name("Pobi")
+                .accountCount(10).build();
         user.setId(15L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.countByAccountUser(any()))
-                .willReturn(10);
         // when
         AccountException exception = assertThrows(AccountException.class,
-                ()->accountService.createAccount(1L,1000L));
+                ()->accountService.createAccount(1L,1000L,"KB"));
         // then
         assertEquals(ErrorCode.MAX_COUNT_PER_USER,exception.getErrorCode());
     }
@@ -132,10 +181,11 @@ class AccountServiceTest {
         // given
         AccountUser user = AccountUser.builder()
                 .name("Pobi")
+                .accountCount(1)
                 .build();
         user.setId(12L);
 
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(user));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(Account.builder()
@@ -152,12 +202,15 @@ class AccountServiceTest {
         assertEquals(12L,accountDto.getUserId());
         assertEquals("100000012",captor.getValue().getAccountNumber());;
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
+        assertEquals(0, user.getAccountCount());
+        verify(accountMetadataCache, times(1)).invalidate("1234567890");
+        verify(accountReadModel, times(1)).updateAfterCommit(Collections.singletonList(captor.getValue()));
     }
     @Test
     @DisplayName("해당 유저 없음 - 계좌 해지 실패")
     void deleteAccount_UserNotFound(){
         // given
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.empty());
 
         // when
@@ -175,7 +228,7 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         user.setId(12L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(user));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.empty());
@@ -188,6 +241,26 @@ class AccountServiceTest {
 
     }
     @Test
+    @DisplayName("필터에 없는 계좌 - DB 조회 없이 계좌 해지 실패")
+    void deleteAccount_filteredAccountNumber(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(12L);
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberFilter.mightContain("1234567890"))
+                .willReturn(false);
+
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                ()-> accountService.deleteAccount(1L,"1234567890"));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,accountException.getErrorCode());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
+    @Test
     @DisplayName("사용자와 카드 소유주 불일치")
     void deleteAccountFailed_userUnMatch(){
         // given
@@ -199,7 +272,7 @@ class AccountServiceTest {
                 .name("Harry")
                 .build();
         harry.setId(13L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(pobi));
 
         given(accountRepository.findByAccountNumber(anyString()))
@@ -217,6 +290,34 @@ class AccountServiceTest {
 
     }
     @Test
+    @DisplayName("아직 반영되지 않은 입금이 있으면 해지할 수 없다.")
+    void deleteAccountFailed_pendingCredit(){
+        // given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        pobi.setId(12L);
+        Account account = Account.builder()
+                .accountUser(pobi)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(0L)
+                .accountNumber("100000012")
+                .build();
+        account.setId(1L);
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
+                .willReturn(Optional.of(pobi));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(ledgerService.getPendingCredit(1L))
+                .willReturn(100L);
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                ()-> accountService.deleteAccount(1L,"1234567890"));
+        // then
+        assertEquals(ErrorCode.BALANCE_NOT_EMPTY,accountException.getErrorCode());
+        verify(accountRepository, never()).save(any());
+    }
+    @Test
     @DisplayName("해지 계좌는 잔액이 없어야 한다.")
     void deleteAccountFailed_balanceNotEmpty(){
         // given
@@ -224,7 +325,7 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         pobi.setId(12L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(pobi));
 
         given(accountRepository.findByAccountNumber(anyString()))
@@ -249,7 +350,7 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         pobi.setId(12L);
-        given(accountUserRespository.findById(anyLong()))
+        given(accountUserRespository.findByIdForUpdate(anyLong()))
                 .willReturn(Optional.of(pobi));
 
         given(accountRepository.findByAccountNumber(anyString()))
@@ -274,19 +375,19 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         pobi.setId(12L);
-        List<Account> accounts = Arrays.asList(
-                Account.builder()
-                        .accountUser(pobi)
+        List<AccountDto> accounts = Arrays.asList(
+                AccountDto.builder()
+                        .userId(12L)
                         .accountNumber("1234567890")
                         .balance(1000L)
                         .build(),
-                Account.builder()
-                        .accountUser(pobi)
+                AccountDto.builder()
+                        .userId(12L)
                         .accountNumber("1234512345")
                         .balance(2000L)
                         .build(),
-                Account.builder()
-                        .accountUser(pobi)
+                AccountDto.builder()
+                        .userId(12L)
                         .accountNumber("6789067890")
                         .balance(3000L)
                         .build()
@@ -295,7 +396,7 @@ class AccountServiceTest {
                 .willReturn(Optional.of(pobi));
         given(accountUserRespository.findById(anyLong()))
                 .willReturn(Optional.of(pobi));
-        given(accountRepository.findByAccountUser(any()))
+        given(accountRepository.findAccountDtosByUserId(12L))
                 .willReturn(accounts);
         // when
         List<AccountDto> accountDtos = accountService.getAccountsByUserId(12L);
@@ -308,6 +409,64 @@ class AccountServiceTest {
         assertEquals("6789067890",accountDtos.get(2).getAccountNumber());
         assertEquals(3000L,accountDtos.get(2).getBalance());
     }
+    @Test
+    void getAccountsByUserId_fromReadModel(){
+        // given
+        given(accountReadModel.isReady()).willReturn(true);
+        given(accountReadModel.findByUserId(12L))
+                .willReturn(Optional.of(Arrays.asList(
+                        view(1L, "1234567890", 1000L),
+                        view(2L, "1234512345", 2000L))));
+        // when
+        List<AccountDto> accountDtos = accountService.getAccountsByUserId(12L);
+        // then
+        assertEquals(2,accountDtos.size());
+        assertEquals(12L,accountDtos.get(0).getUserId());
+        assertEquals("1234567890",accountDtos.get(0).getAccountNumber());
+        assertEquals(2000L,accountDtos.get(1).getBalance());
+        verify(accountUserRespository, never()).findById(anyLong());
+        verify(accountRepository, never()).findAccountDtosByUserId(anyLong());
+    }
+
+    @Test
+    void getAccount_fromReadModel(){
+        // given
+        given(accountReadModel.isReady()).willReturn(true);
+        given(accountReadModel.findById(1L))
+                .willReturn(Optional.of(view(1L, "1234567890", 1000L)));
+        // when
+        AccountView account = accountService.getAccount(1L);
+        // then
+        assertEquals("1234567890",account.getAccountNumber());
+        verify(accountRepository, never()).findViewById(anyLong());
+    }
+
+    @Test
+    void getAccount_staleReadModel(){
+        // given
+        given(accountReadModel.isReady()).willReturn(false);
+        given(accountRepository.findViewById(1L))
+                .willReturn(Optional.of(view(1L, "1234567890", 1000L)));
+        // when
+        AccountView account = accountService.getAccount(1L);
+        // then
+        assertEquals(1000L,account.getBalance());
+        verify(accountReadModel, never()).findById(anyLong());
+    }
+
+    @Test
+    void getAccount_AccountNotFound(){
+        // given
+        given(accountReadModel.isReady()).willReturn(true);
+        given(accountReadModel.findById(1L)).willReturn(Optional.empty());
+        given(accountRepository.findViewById(1L)).willReturn(Optional.empty());
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                ()-> accountService.getAccount(1L));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,accountException.getErrorCode());
+    }
+
     @Test
     void failedToGetAccount(){
         // given
@@ -321,5 +480,14 @@ class AccountServiceTest {
 
     }
 
-
-}
\ No newline at end of file
+    private static AccountView view(Long id, String accountNumber, Long balance) {
+        return AccountView.builder()
+                .id(id)
+                .userId(12L)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .version(0L)
+                .build();
+    }
+}
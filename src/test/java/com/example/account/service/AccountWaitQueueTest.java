@@ -0,0 +1,91 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountWaitQueueTest {
+    private static final List<String> ACCOUNT = Collections.singletonList("1000000000");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountWaitQueue queue = new AccountWaitQueue(meterRegistry, true, 2, 1000L);
+
+    @Test
+    @DisplayName("앞 요청이 끝나면 다음 대기자에게 순서대로 넘겨준다.")
+    void handOffInFifoOrder() throws Exception {
+        // given
+        queue.await(ACCOUNT);
+        CompletableFuture<Void> second = queue.acquire(ACCOUNT);
+        CompletableFuture<Void> third = queue.acquire(ACCOUNT);
+        // when
+        // then
+        assertFalse(second.isDone());
+        assertEquals(2.0, meterRegistry.get("account.lock.queue.waiting").gauge().value());
+
+        queue.release(ACCOUNT);
+        second.get(1, TimeUnit.SECONDS);
+        assertFalse(third.isDone());
+
+        queue.release(ACCOUNT);
+        third.get(1, TimeUnit.SECONDS);
+        queue.release(ACCOUNT);
+        assertEquals(0.0, meterRegistry.get("account.lock.queue.accounts").gauge().value());
+    }
+
+    @Test
+    @DisplayName("대기열이 가득 차면 기다리지 않고 바로 거절")
+    void rejectWhenQueueIsFull() {
+        // given
+        queue.await(ACCOUNT);
+        queue.acquire(ACCOUNT);
+        queue.acquire(ACCOUNT);
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> queue.await(ACCOUNT));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_QUEUE_FULL, exception.getErrorCode());
+        assertEquals(1.0, meterRegistry.get("account.lock.queue.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("최대 대기 시간을 넘기면 실패하고, 차례는 다음 대기자에게 넘어간다.")
+    void timeoutWaiterIsSkipped() throws Exception {
+        // given
+        AccountWaitQueue shortQueue = new AccountWaitQueue(meterRegistry, true, 2, 50L);
+        shortQueue.await(ACCOUNT);
+        CompletableFuture<Void> timedOut = shortQueue.acquire(ACCOUNT);
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> timedOut.get(1, TimeUnit.SECONDS));
+        CompletableFuture<Void> next = shortQueue.acquire(ACCOUNT);
+        shortQueue.release(ACCOUNT);
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        next.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("여러 계좌를 기다리다 실패하면 먼저 얻은 계좌는 돌려준다.")
+    void releaseAcquiredAccountsOnFailure() throws Exception {
+        // given
+        AccountWaitQueue shortQueue = new AccountWaitQueue(meterRegistry, true, 2, 50L);
+        shortQueue.await(Collections.singletonList("2000000000"));
+        // when
+        CompletableFuture<Void> both = shortQueue.acquire(Arrays.asList("2000000000", "1000000000"));
+        // then
+        assertThrows(ExecutionException.class, () -> both.get(1, TimeUnit.SECONDS));
+        shortQueue.acquire(ACCOUNT).get(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountView;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.FailureOverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionRecorderTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void recordInBackgroundBatch() {
+        // given
+        FailedTransactionRecorder recorder = recorder(10, FailureOverflowPolicy.DROP_OLDEST);
+        givenAccounts(view(1L, "1000000000", 1000L), view(2L, "2000000000", 2000L));
+        givenAccountReference();
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        // when
+        recorder.record(USE, "1000000000", 100L);
+        recorder.record(CANCEL, "2000000000", 200L);
+        recorder.record(USE, "9999999999", 300L);
+        verify(transactionRepository, never()).saveAll(anyCollection());
+        recorder.flush();
+        // then
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        List<Transaction> transactions = captor.getValue();
+        assertEquals(2, transactions.size());
+        assertEquals(USE, transactions.get(0).getTransactionType());
+        assertEquals(F, transactions.get(0).getTransactionResultType());
+        assertEquals(100L, transactions.get(0).getAmount());
+        assertEquals(1000L, transactions.get(0).getBalanceSnapshot());
+        assertEquals(1L, transactions.get(0).getAccount().getId());
+        assertEquals(CANCEL, transactions.get(1).getTransactionType());
+        assertEquals(2000L, transactions.get(1).getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("요청 스레드에서는 DB를 읽지 않고, flush에서 배치당 한 번 읽는다.")
+    void readAccountsOncePerBatch() {
+        // given
+        FailedTransactionRecorder recorder = recorder(10, FailureOverflowPolicy.DROP_OLDEST);
+        givenAccounts(view(1L, "1000000000", 1000L), view(2L, "2000000000", 2000L));
+        givenAccountReference();
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        // when
+        recorder.record(USE, "1000000000", 100L);
+        recorder.record(USE, "1000000000", 200L);
+        recorder.record(CANCEL, "2000000000", 300L);
+        verifyNoInteractions(accountRepository);
+        recorder.flush();
+        // then
+        verify(accountRepository, times(1)).findViewsByAccountNumberIn(captor.capture());
+        assertEquals(Set.of("1000000000", "2000000000"), new HashSet<>(captor.getValue()));
+    }
+
+    @Test
+    void dropOldestWhenQueueIsFull() {
+        // given
+        FailedTransactionRecorder recorder = recorder(2, FailureOverflowPolicy.DROP_OLDEST);
+        givenAccounts(view(1L, "1000000000", 1000L));
+        givenAccountReference();
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        // when
+        recorder.record(USE, "1000000000", 100L);
+        recorder.record(USE, "1000000000", 200L);
+        recorder.record(USE, "1000000000", 300L);
+        recorder.flush();
+        // then
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(200L, captor.getValue().get(0).getAmount());
+        assertEquals(300L, captor.getValue().get(1).getAmount());
+        assertEquals(1.0, meterRegistry.get("account.failure-recorder.dropped").counter().count());
+    }
+
+    @Test
+    void writeOnCallerWhenQueueIsFull() {
+        // given
+        FailedTransactionRecorder recorder = recorder(1, FailureOverflowPolicy.CALLER_RUNS);
+        givenAccounts(view(1L, "1000000000", 1000L));
+        givenAccountReference();
+        // when
+        recorder.record(USE, "1000000000", 100L);
+        recorder.record(USE, "1000000000", 200L);
+        // then
+        verify(transactionRepository, times(1)).saveAll(anyCollection());
+    }
+
+    private FailedTransactionRecorder recorder(int queueCapacity, FailureOverflowPolicy overflowPolicy) {
+        return new FailedTransactionRecorder(accountRepository, transactionRepository,
+                new SnowflakeTransactionIdGenerator(1), transactionManager, meterRegistry,
+                queueCapacity, 100, overflowPolicy);
+    }
+
+    private void givenAccounts(AccountView... views) {
+        given(accountRepository.findViewsByAccountNumberIn(anyCollection()))
+                .willReturn(Arrays.asList(views));
+    }
+
+    private void givenAccountReference() {
+        given(accountRepository.getReferenceById(anyLong())).willAnswer(invocation -> {
+            Account account = Account.builder().build();
+            account.setId(invocation.getArgument(0));
+            return account;
+        });
+    }
+
+    private static AccountView view(Long id, String accountNumber, Long balance) {
+        return AccountView.builder()
+                .id(id)
+                .accountNumber(accountNumber)
+                .balance(balance)
+                .build();
+    }
+}
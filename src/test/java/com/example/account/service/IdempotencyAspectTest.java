@@ -0,0 +1,197 @@
+package com.example.account.service;
+
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisConnectionException;
+import org.redisson.client.codec.Codec;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+    @Mock
+    private RedissonClient redissonClient;
+    @Mock
+    private RMapCache<String, String> mapCache;
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+    @Mock
+    private MethodSignature methodSignature;
+
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+    private IdempotencyAspect idempotencyAspect;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(mapCache).when(redissonClient).getMapCache(anyString(), any(Codec.class));
+        IdempotencyStore store = new IdempotencyStore(redissonClient, 100, 100);
+        idempotencyAspect = new IdempotencyAspect(store,
+                new ObjectMapper().findAndRegisterModules(), 60_000L, 1_000L);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+        lenient().when(proceedingJoinPoint.getSignature()).thenReturn(methodSignature);
+        lenient().when(methodSignature.getName()).thenReturn("useBalance");
+        lenient().when(methodSignature.getReturnType()).thenReturn(UseBalance.Response.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void proceedWithoutKey() throws Throwable {
+        // given
+        given(proceedingJoinPoint.proceed()).willReturn(response());
+        // when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        // then
+        verify(proceedingJoinPoint, times(2)).proceed();
+        verify(mapCache, never()).putIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void replayStoredResponseForSameKey() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(proceedingJoinPoint.proceed()).willReturn(response());
+        // when
+        Object first = idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        Object second = idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        // then
+        verify(proceedingJoinPoint, times(1)).proceed();
+        assertEquals(((UseBalance.Response) first).getTransactionId(),
+                ((UseBalance.Response) second).getTransactionId());
+        assertEquals(((UseBalance.Response) first).getTransactedAt(),
+                ((UseBalance.Response) second).getTransactedAt());
+        // 두 번째 요청은 노드 안의 캐시에서 응답 (redis 조회 없음)
+        verify(mapCache, times(1)).get(anyString());
+    }
+
+    @Test
+    void retryAfterFailure() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .willReturn(response());
+        // when
+        assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint));
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        // then
+        assertNotNull(result);
+        verify(proceedingJoinPoint, times(2)).proceed();
+        verify(mapCache, times(1)).fastRemove(anyString());
+    }
+
+    @Test
+    void rejectSameKeyWithDifferentBody() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(proceedingJoinPoint.proceed()).willReturn(response());
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        givenArgs(request(2000L));
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint));
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+    }
+
+    @Test
+    void separateKeysPerUser() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(proceedingJoinPoint.proceed()).willReturn(response());
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        given(proceedingJoinPoint.getArgs()).willReturn(new Object[]{
+                new UseBalance.Request(2L, "3000000000", 1000L, "2000000000", "KB", "")});
+        // when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        // then
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    void rejectWhileInProgress() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(mapCache.putIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .willReturn("P|other|");
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint));
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, exception.getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void useLocalCacheWhenRedisIsDown() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        givenArgs(request(1000L));
+        given(proceedingJoinPoint.proceed()).willReturn(response());
+        given(mapCache.get(anyString()))
+                .willThrow(new RedisConnectionException("down"));
+        given(mapCache.putIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .willThrow(new RedisConnectionException("down"));
+        given(mapCache.fastPut(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .willThrow(new RedisConnectionException("down"));
+        // when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        idempotencyAspect.aroundMethod(proceedingJoinPoint);
+        // then
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    private void givenArgs(UseBalance.Request request) {
+        given(proceedingJoinPoint.getArgs()).willReturn(new Object[]{request});
+    }
+
+    private static UseBalance.Request request(long amount) {
+        return new UseBalance.Request(1L, "1000000000", amount, "2000000000", "KB", "");
+    }
+
+    private static UseBalance.Response response() {
+        return UseBalance.Response.builder()
+                .accountNumber("1000000000")
+                .transactionResultType(TransactionResultType.S)
+                .transactionId("transactionId")
+                .amount(1000L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.dto.AccountDto;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * deferred-credit: 받는 계좌 row는 스냅샷 때 한 번에 바뀌고, 원장 잔액은 이체 직후부터 맞다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger-balance;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.ledger.deferred-credit=true",
+        "account.ledger.snapshot-grace=0",
+        "account.ledger.snapshot-interval=3600000"
+})
+class LedgerBalanceTest {
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Test
+    void balanceFromSnapshotAndPostings() {
+        // given
+        AccountDto from = accountService.createAccount(1L, 1000L, "KB");
+        AccountDto to = accountService.createAccount(2L, 0L, "KB");
+        Long fromId = accountRepository.findByAccountNumber(from.getAccountNumber()).get().getId();
+        Long toId = accountRepository.findByAccountNumber(to.getAccountNumber()).get().getId();
+        // when
+        transactionService.useBalance(1L, from.getAccountNumber(), 300L,
+                to.getAccountNumber(), "KB", "ledger");
+        // then
+        assertEquals(700L, ledgerService.getBalance(fromId));
+        assertEquals(300L, ledgerService.getBalance(toId));
+        assertEquals(700L, accountRepository.findById(fromId).get().getBalance());
+        // 받는 계좌 row는 아직 그대로
+        assertEquals(0L, accountRepository.findById(toId).get().getBalance());
+        assertEquals(300L, ledgerService.getPendingCredit(toId));
+        assertEquals(300L, accountService.getBalance(to.getAccountNumber()).getBalance());
+
+        // when
+        assertTrue(ledgerService.snapshot() >= 2);
+        // then
+        assertEquals(300L, accountRepository.findById(toId).get().getBalance());
+        assertEquals(0L, ledgerService.getPendingCredit(toId));
+        assertEquals(300L, ledgerService.getBalance(toId));
+        assertEquals(700L, ledgerService.getBalance(fromId));
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findById(fromId).get();
+        // 개설 입금 1 + 출금 1
+        assertEquals(2L, snapshot.getPostingCount());
+        assertEquals(700L, snapshot.getBalance());
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.domain.LedgerPosting;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceSnapshotRepository;
+import com.example.account.repository.LedgerPostingRepository;
+import com.example.account.type.PostingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private LockService lockService;
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+    @Mock
+    private AccountReadModel accountReadModel;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void transferAppendsDebitAndCredit() {
+        // given
+        LedgerService ledgerService = ledgerService(true);
+        ArgumentCaptor<List<LedgerPosting>> captor = ArgumentCaptor.forClass(List.class);
+        // when
+        ledgerService.transfer("transactionId", account(1L, "1000000000"),
+                account(2L, "2000000000"), 300L, false);
+        // then
+        verify(ledgerPostingRepository, times(1)).saveAll(captor.capture());
+        LedgerPosting debit = captor.getValue().get(0);
+        LedgerPosting credit = captor.getValue().get(1);
+        assertEquals(1L, debit.getAccountId());
+        assertEquals(PostingType.DEBIT, debit.getPostingType());
+        assertEquals(-300L, debit.getAmount());
+        assertTrue(debit.getApplied());
+        assertEquals(2L, credit.getAccountId());
+        assertEquals(PostingType.CREDIT, credit.getPostingType());
+        assertEquals(300L, credit.getAmount());
+        assertFalse(credit.getApplied());
+        assertEquals(0L, debit.getAmount() + credit.getAmount());
+        assertEquals(2.0, meterRegistry.get("account.ledger.postings").counter().count());
+    }
+
+    @Test
+    void snapshotFoldsPostingsAndDepositsPendingCredit() {
+        // given
+        LedgerService ledgerService = ledgerService(true);
+        LedgerPosting debit = posting(2L, -100L, true);
+        LedgerPosting credit = posting(2L, 300L, false);
+        LocalDateTime snapshotBefore = LocalDateTime.now().minusMinutes(10);
+        given(ledgerPostingRepository.findAccountIdsToSnapshot(any(), any(), any()))
+                .willReturn(Arrays.asList(2L));
+        given(ledgerPostingRepository.findPostingsToSnapshot(eq(2L), eq(snapshotBefore), any()))
+                .willReturn(Arrays.asList(debit, credit));
+        given(balanceSnapshotRepository.findByIdForUpdate(2L))
+                .willReturn(Optional.of(BalanceSnapshot.builder()
+                        .accountId(2L)
+                        .balance(1000L)
+                        .postedBefore(snapshotBefore)
+                        .postingCount(3L)
+                        .build()));
+        given(accountRepository.findById(2L))
+                .willReturn(Optional.of(account(2L, "2000000000")));
+        ArgumentCaptor<BalanceSnapshot> captor = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        // when
+        int snapshots = ledgerService.snapshot();
+        // then
+        assertEquals(1, snapshots);
+        // 원장 기록은 바꾸지 않는다.
+        assertFalse(credit.getApplied());
+        verify(accountRepository, times(1)).deposit(2L, 300L);
+        verify(accountReadModel, times(1)).reloadAfterCommit(Collections.singletonList(2L));
+        verify(balanceSnapshotRepository, times(1)).save(captor.capture());
+        assertEquals(5L, captor.getValue().getPostingCount());
+        assertEquals(1200L, captor.getValue().getBalance());
+        assertTrue(captor.getValue().getPostedBefore().isAfter(snapshotBefore));
+        verify(lockService, times(1)).lock("2000000000", 1000L);
+        verify(lockService, times(1)).unlock("2000000000");
+    }
+
+    @Test
+    void firstSnapshotWithoutLockWhenCreditsAreApplied() {
+        // given
+        LedgerService ledgerService = ledgerService(false);
+        given(ledgerPostingRepository.findAccountIdsToSnapshot(any(), any(), any()))
+                .willReturn(Arrays.asList(1L));
+        given(ledgerPostingRepository.findPostingsToSnapshot(eq(1L), any(), any()))
+                .willReturn(Arrays.asList(posting(1L, 1000L, true)));
+        given(balanceSnapshotRepository.findByIdForUpdate(1L))
+                .willReturn(Optional.empty());
+        ArgumentCaptor<BalanceSnapshot> captor = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        // when
+        ledgerService.snapshot();
+        // then
+        verify(balanceSnapshotRepository, times(1)).save(captor.capture());
+        assertEquals(1L, captor.getValue().getPostingCount());
+        assertEquals(1000L, captor.getValue().getBalance());
+        verify(accountRepository, never()).deposit(anyLong(), anyLong());
+        verify(lockService, never()).lock(anyString(), anyLong());
+    }
+
+    @Test
+    void skipWhenAnotherNodeAlreadySnapshotted() {
+        // given
+        LedgerService ledgerService = ledgerService(false);
+        given(balanceSnapshotRepository.findByIdForUpdate(1L))
+                .willReturn(Optional.of(BalanceSnapshot.builder()
+                        .accountId(1L)
+                        .balance(1000L)
+                        .postedBefore(LocalDateTime.now().plusMinutes(1))
+                        .postingCount(1L)
+                        .build()));
+        // when
+        ledgerService.snapshot(1L, LocalDateTime.now());
+        // then
+        verify(ledgerPostingRepository, never()).findPostingsToSnapshot(anyLong(), any(), any());
+        verify(balanceSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("다 합친 구간은 다음 주기에 다시 훑지 않는다.")
+    void advanceScanAfterCompletePass() {
+        // given
+        LedgerService ledgerService = ledgerService(false);
+        given(ledgerPostingRepository.findAccountIdsToSnapshot(any(), any(), any()))
+                .willReturn(Collections.emptyList());
+        ArgumentCaptor<LocalDateTime> postedAfter = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> postedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        // when
+        ledgerService.snapshot();
+        ledgerService.snapshot();
+        // then
+        verify(ledgerPostingRepository, times(2)).findAccountIdsToSnapshot(
+                postedAfter.capture(), postedBefore.capture(), any());
+        assertEquals(postedBefore.getAllValues().get(0), postedAfter.getAllValues().get(1));
+    }
+
+    private LedgerService ledgerService(boolean deferredCredit) {
+        return new LedgerService(ledgerPostingRepository, balanceSnapshotRepository, accountRepository,
+                lockService, transactionIdGenerator, accountReadModel, transactionManager, meterRegistry,
+                deferredCredit, 5000, 500, 1000);
+    }
+
+    private static Account account(Long id, String accountNumber) {
+        Account account = Account.builder()
+                .accountNumber(accountNumber)
+                .balance(0L)
+                .build();
+        account.setId(id);
+        return account;
+    }
+
+    private static LedgerPosting posting(Long accountId, long amount, boolean applied) {
+        return LedgerPosting.builder()
+                .accountId(accountId)
+                .postingType(amount < 0 ? PostingType.DEBIT : PostingType.CREDIT)
+                .amount(amount)
+                .applied(applied)
+                .postedAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLockServiceTest {
+    private final LocalLockService lockService = new LocalLockService(16);
+
+    @Test
+    void successGetLock() {
+        // given
+        // when
+        // then
+        assertDoesNotThrow(() -> lockService.lock("1000000000", 100L));
+        lockService.unlock("1000000000");
+        assertDoesNotThrow(() -> lockService.lock("1000000000", 100L));
+    }
+
+    @Test
+    void failGetLock_alreadyLocked() {
+        // given
+        lockService.lock("1000000000", 100L);
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> lockService.lock("1000000000", 50L));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+    }
+
+    @Test
+    void unlockFromOtherThread() throws Exception {
+        // given
+        lockService.lock("1000000000", 100L);
+        // when
+        CompletableFuture.runAsync(() -> lockService.unlock("1000000000"))
+                .get(1, TimeUnit.SECONDS);
+        // then
+        assertDoesNotThrow(() -> lockService.lock("1000000000", 100L));
+    }
+
+    @Test
+    @DisplayName("기다리는 요청은 스레드 없이 대기열에서 기다리다가 unlock이 넘겨준다.")
+    void lockAsyncHandOffOnUnlock() throws Exception {
+        // given
+        lockService.lock("1000000000", 100L);
+        CompletableFuture<Void> first = lockService.lockAsync(Arrays.asList("1000000000"), 1000L);
+        CompletableFuture<Void> second = lockService.lockAsync(Arrays.asList("1000000000"), 1000L);
+        assertFalse(first.isDone());
+        // when
+        lockService.unlock("1000000000");
+        // then
+        first.get(1, TimeUnit.SECONDS);
+        assertFalse(second.isDone());
+        lockService.unlock("1000000000");
+        second.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lockAsyncTimeout() throws Exception {
+        // given
+        lockService.lock("1000000000", 100L);
+        // when
+        CompletableFuture<Void> waiting = lockService.lockAsync(Arrays.asList("1000000000"), 50L);
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> waiting.get(1, TimeUnit.SECONDS));
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        // 시간 초과한 대기자는 건너뛰고 lock이 풀린다.
+        lockService.unlock("1000000000");
+        assertDoesNotThrow(() -> lockService.lock("1000000000", 100L));
+    }
+
+    @Test
+    @DisplayName("양방향 이체가 몰려도 deadlock 없이 잔액 합계가 유지된다.")
+    void twoWayTransfersNeverDeadlockOrLoseCredit() throws Exception {
+        transferUnderLoad(new LocalLockService(1024));
+    }
+
+    @Test
+    @DisplayName("두 계좌가 같은 stripe에 걸려도 deadlock이 없다.")
+    void twoWayTransfersOnSharedStripe() throws Exception {
+        transferUnderLoad(new LocalLockService(1));
+    }
+
+    private void transferUnderLoad(LocalLockService lockService) throws Exception {
+        // given
+        String a = "1000000000";
+        String b = "2000000000";
+        long[] balances = {1_000_000L, 1_000_000L};
+        int threads = 8;
+        int transfersPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int t = 0; t < threads; t++) {
+            boolean aToB = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transfersPerThread; i++) {
+                    // 요청마다 계좌 순서를 바꿔서 넘겨도 lock 순서는 같아야 한다.
+                    List<String> accountNumbers = aToB ? Arrays.asList(a, b) : Arrays.asList(b, a);
+                    lockService.lock(accountNumbers, 5_000L);
+                    try {
+                        int from = aToB ? 0 : 1;
+                        long debited = balances[from] - 1;
+                        Thread.yield();
+                        balances[from] = debited;
+                        balances[1 - from] = balances[1 - from] + 1;
+                    } finally {
+                        lockService.unlock(accountNumbers);
+                    }
+                }
+            }));
+        }
+        // then
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(2_000_000L, balances[0] + balances[1]);
+        assertEquals(1_000_000L, balances[0]);
+        assertEquals(1_000_000L, balances[1]);
+    }
+}
@@ -1,18 +1,33 @@
 package com.example.account.service;
 
+import com.example.account.aop.Accountlock;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.TransactionType;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static com.example.account.type.ErrorCode.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -21,55 +36,195 @@ class LockAopAspectTest {
     @Mock
     private LockService lockService;
 
+    @Mock
+    private AccountWaitQueue accountWaitQueue;
+
+    @Mock
+    private ConcurrencyModeResolver concurrencyModeResolver;
+
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Mock
+    private Accountlock accountlock;
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
     @Test
     void lockAndUnlock() throws Throwable {
         // given
-        ArgumentCaptor<String> lockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> unlockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Collection<String>> lockArgumentCaptor =
+                ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<String>> unlockArgumentCaptor =
+                ArgumentCaptor.forClass(Collection.class);
         UseBalance.Request request =
                 new UseBalance.Request(123L,"1234",1000L);
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(UseBalance.Response.class);
         // when
-        lockAopAspect.aroundMethod(proceedingJoinPoint,request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountlock,request);
         // then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(500L));
         verify(lockService, times(1))
                 .unlock(unlockArgumentCaptor.capture());
-        assertEquals("1234",lockArgumentCaptor.getValue());
-        assertEquals("1234",unlockArgumentCaptor.getValue());
+        assertTrue(lockArgumentCaptor.getValue().contains("1234"));
+        assertEquals(lockArgumentCaptor.getValue(),unlockArgumentCaptor.getValue());
 
     }
 
     @Test
     void lockAndUnlock_eenIfThrow() throws Throwable {
         // given
-        ArgumentCaptor<String> lockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> unlockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Collection<String>> lockArgumentCaptor =
+                ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<String>> unlockArgumentCaptor =
+                ArgumentCaptor.forClass(Collection.class);
         UseBalance.Request request =
                 new UseBalance.Request(123L,"54321",1000L);
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(UseBalance.Response.class);
         given(proceedingJoinPoint.proceed())
                 .willThrow(new AccountException(ACCOUNT_NOT_FOUND));
         // when
         assertThrows(AccountException.class, ()->
-        lockAopAspect.aroundMethod(proceedingJoinPoint,request));
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountlock,request));
         // then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(500L));
         verify(lockService, times(1))
                 .unlock(unlockArgumentCaptor.capture());
-        assertEquals("54321",lockArgumentCaptor.getValue());
-        assertEquals("54321",unlockArgumentCaptor.getValue());
+        assertTrue(lockArgumentCaptor.getValue().contains("54321"));
+        assertEquals(lockArgumentCaptor.getValue(),unlockArgumentCaptor.getValue());
+        verify(accountWaitQueue, times(1)).release(lockArgumentCaptor.getValue());
+
+    }
+
+    @Test
+    void releaseQueueBeforeUnlock() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L,"1234",1000L);
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(UseBalance.Response.class);
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountlock,request);
+        // then
+        InOrder inOrder = inOrder(accountWaitQueue, lockService);
+        inOrder.verify(accountWaitQueue).release(any());
+        inOrder.verify(lockService).unlock(anyCollection());
+    }
+
+    @Test
+    void lockBothAccountsOfTransfer() throws Throwable {
+        // given
+        ArgumentCaptor<Collection<String>> lockArgumentCaptor =
+                ArgumentCaptor.forClass(Collection.class);
+        UseBalance.Request request = new UseBalance.Request(
+                123L, "2000000000", 1000L, "1000000000", "KB", "");
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(UseBalance.Response.class);
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountlock,request);
+        // then
+        verify(lockService, times(1))
+                .lock(lockArgumentCaptor.capture(), eq(500L));
+        assertEquals(Arrays.asList("1000000000", "2000000000"),
+                new ArrayList<>(lockArgumentCaptor.getValue()));
+    }
+
+    @Test
+    void asyncLockAndUnlock() throws Throwable {
+        // given
+        LockAopAspect asyncAspect = new LockAopAspect(
+                lockService, accountWaitQueue, concurrencyModeResolver, Runnable::run);
+        UseBalance.Request request = new UseBalance.Request(
+                123L, "2000000000", 1000L, "1000000000", "KB", "");
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(CompletableFuture.class);
+        given(accountWaitQueue.acquire(any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(lockService.lockAsync(any(), eq(500L)))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.completedFuture("done"));
+        // when
+        Object result = asyncAspect.aroundMethod(proceedingJoinPoint, accountlock, request);
+        // then
+        assertEquals("done", ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+        verify(lockService, times(1)).unlockAsync(any());
+        verify(accountWaitQueue, times(1)).release(any());
+        verify(lockService, never()).lock(anyCollection(), anyLong());
+    }
+
+    @Test
+    void asyncLockFailed_notProceed() throws Throwable {
+        // given
+        LockAopAspect asyncAspect = new LockAopAspect(
+                lockService, accountWaitQueue, concurrencyModeResolver, Runnable::run);
+        UseBalance.Request request = new UseBalance.Request(
+                123L, "2000000000", 1000L, "1000000000", "KB", "");
+        CompletableFuture<Void> lockFailed = new CompletableFuture<>();
+        lockFailed.completeExceptionally(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        given(accountlock.tryLockTime()).willReturn(500L);
+        givenReturnType(CompletableFuture.class);
+        given(accountWaitQueue.acquire(any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(lockService.lockAsync(any(), eq(500L)))
+                .willReturn(lockFailed);
+        // when
+        CompletableFuture<?> result = (CompletableFuture<?>)
+                asyncAspect.aroundMethod(proceedingJoinPoint, accountlock, request);
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> result.get(1, TimeUnit.SECONDS));
+        assertEquals(ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(lockService, never()).unlockAsync(any());
+        verify(accountWaitQueue, times(1)).release(any());
+    }
+
+    @Test
+    void optimisticModeSkipsLock() throws Throwable {
+        // given
+        UseBalance.Request request = new UseBalance.Request(
+                123L, "2000000000", 1000L, "1000000000", "KB", "");
+        given(concurrencyModeResolver.resolve(any())).willReturn(ConcurrencyMode.OPTIMISTIC);
+        givenReturnType(UseBalance.Response.class);
+        given(proceedingJoinPoint.proceed()).willReturn("done");
+        // when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountlock, request);
+        // then
+        assertEquals("done", result);
+        verify(accountWaitQueue, never()).await(any());
+        verify(lockService, never()).lock(anyCollection(), anyLong());
+    }
+
+    @Test
+    void dbLockModeSkipsLock() throws Throwable {
+        // given
+        UseBalance.Request request = new UseBalance.Request(
+                123L, "2000000000", 1000L, "1000000000", "KB", "");
+        given(accountlock.transactionType()).willReturn(TransactionType.CANCEL);
+        given(concurrencyModeResolver.resolve(TransactionType.CANCEL)).willReturn(ConcurrencyMode.DB_LOCK);
+        givenReturnType(UseBalance.Response.class);
+        given(proceedingJoinPoint.proceed()).willReturn("done");
+        // when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountlock, request);
+        // then
+        assertEquals("done", result);
+        verify(accountWaitQueue, never()).await(any());
+        verify(lockService, never()).lock(anyCollection(), anyLong());
+    }
 
+    private void givenReturnType(Class<?> returnType) {
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getReturnType()).willReturn(returnType);
     }
 
-}
\ No newline at end of file
+}
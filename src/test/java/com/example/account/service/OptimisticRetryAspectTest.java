@@ -0,0 +1,94 @@
+package com.example.account.service;
+
+import com.example.account.aop.RetryOnConflict;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.TransactionType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticRetryAspectTest {
+    @Mock
+    private ConcurrencyModeResolver concurrencyModeResolver;
+
+    @Mock
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private RetryOnConflict retryOnConflict;
+
+    @InjectMocks
+    private OptimisticRetryAspect optimisticRetryAspect;
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void retryInOptimisticMode() throws Throwable {
+        // given
+        given(retryOnConflict.transactionType()).willReturn(TransactionType.USE);
+        given(concurrencyModeResolver.resolve(TransactionType.USE)).willReturn(ConcurrencyMode.OPTIMISTIC);
+        given(optimisticRetryExecutor.proceed(proceedingJoinPoint)).willReturn("done");
+        // when
+        Object result = optimisticRetryAspect.aroundMethod(proceedingJoinPoint, retryOnConflict);
+        // then
+        assertEquals("done", result);
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void retryInLockModeWithReservation() throws Throwable {
+        // given
+        given(retryOnConflict.transactionType()).willReturn(TransactionType.CANCEL);
+        given(concurrencyModeResolver.resolve(TransactionType.CANCEL)).willReturn(ConcurrencyMode.LOCK);
+        given(concurrencyModeResolver.resolve(TransactionType.USE)).willReturn(ConcurrencyMode.RESERVATION);
+        given(optimisticRetryExecutor.proceed(proceedingJoinPoint)).willReturn("done");
+        // when
+        Object result = optimisticRetryAspect.aroundMethod(proceedingJoinPoint, retryOnConflict);
+        // then
+        assertEquals("done", result);
+        verify(optimisticRetryExecutor, times(1)).proceed(proceedingJoinPoint);
+    }
+
+    @Test
+    void proceedOnceInLockMode() throws Throwable {
+        // given
+        given(retryOnConflict.transactionType()).willReturn(TransactionType.USE);
+        given(concurrencyModeResolver.resolve(TransactionType.USE)).willReturn(ConcurrencyMode.LOCK);
+        given(proceedingJoinPoint.proceed()).willReturn("done");
+        // when
+        Object result = optimisticRetryAspect.aroundMethod(proceedingJoinPoint, retryOnConflict);
+        // then
+        assertEquals("done", result);
+        verify(optimisticRetryExecutor, never()).proceed(proceedingJoinPoint);
+    }
+
+    @Test
+    void doNotRetryInsideTransaction() throws Throwable {
+        // given
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        given(proceedingJoinPoint.proceed()).willReturn("done");
+        // when
+        Object result = optimisticRetryAspect.aroundMethod(proceedingJoinPoint, retryOnConflict);
+        // then
+        assertEquals("done", result);
+        verify(optimisticRetryExecutor, never()).proceed(proceedingJoinPoint);
+    }
+}
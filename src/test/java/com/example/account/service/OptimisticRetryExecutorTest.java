@@ -0,0 +1,74 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticRetryExecutorTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OptimisticRetryExecutor retryExecutor =
+            new OptimisticRetryExecutor(meterRegistry, 3, 1L, 2L);
+
+    @Test
+    void successAfterConflict() throws Throwable {
+        // given
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .willReturn("done");
+        // when
+        Object result = retryExecutor.proceed(proceedingJoinPoint);
+        // then
+        assertEquals("done", result);
+        verify(proceedingJoinPoint, times(2)).proceed();
+        assertEquals(1.0, meterRegistry.get("account.optimistic.retry").counter().count());
+    }
+
+    @Test
+    void failAfterMaxAttempts() throws Throwable {
+        // given
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 1L));
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> retryExecutor.proceed(proceedingJoinPoint));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void doNotRetryOtherException() throws Throwable {
+        // given
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> retryExecutor.proceed(proceedingJoinPoint));
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void backoffIsBounded() {
+        for (int attempt = 1; attempt < 40; attempt++) {
+            long backoff = retryExecutor.backoffMillis(attempt);
+            assertTrue(backoff >= 0 && backoff <= 2L);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RedisLockServiceTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock rLock;
+
+    private RedisLockService lockService;
+
+    @BeforeEach
+    void setUp() {
+        lockService = new RedisLockService(redissonClient, 15000L, 1);
+    }
+
+    @Test
+    void successGetLock() {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        RFuture<Void> unlocked = rFuture(null);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(unlocked);
+        //when
+        //then
+        assertDoesNotThrow(() -> lockService.lock("123", 500L));
+        lockService.unlock("123");
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void failGetLock() {
+        //given
+        RFuture<Boolean> rejected = rFuture(false);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(rejected);
+        //when
+        AccountException exception = assertThrows(com.example.account.exception.AccountException.class,
+                () -> lockService.lock("123", 500L));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+
+    }
+
+    @Test
+    void successGetMultiLock() {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        //when
+        lockService.lock(Arrays.asList("2000000000", "1000000000"), 500L);
+        //then
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(redissonClient, times(2)).getLock(keyCaptor.capture());
+        assertEquals(Arrays.asList("ACLK1000000000", "ACLK2000000000"),
+                keyCaptor.getAllValues());
+    }
+
+    @Test
+    @DisplayName("같은 노드의 대기자에게는 redis lock을 쥔 채로 넘겨준다.")
+    void handOffToLocalWaiter() throws Exception {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        RFuture<Void> unlocked = rFuture(null);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(unlocked);
+        RFuture<Boolean> extended = rFuture(true);
+        given(rLock.expireAsync(anyLong(), any()))
+                .willReturn(extended);
+        lockService.lock("123", 500L);
+        CompletableFuture<Void> second = lockService.lockAsync(Arrays.asList("123"), 500L);
+        //when
+        lockService.unlock("123");
+        //then
+        second.get(1, TimeUnit.SECONDS);
+        verify(rLock, times(1)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+        verify(rLock, never()).unlockAsync(anyLong());
+        // 넘겨받은 요청도 lease 전체를 쓸 수 있다.
+        verify(rLock, times(1)).expireAsync(15000L, TimeUnit.MILLISECONDS);
+        verify(redissonClient, times(1)).getLock(anyString());
+
+        lockService.unlock("123");
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    @DisplayName("넘겨준 횟수가 max-local-handoffs를 넘으면 redis lock을 놓고 다시 얻는다.")
+    void releaseRemoteLockAfterMaxHandoffs() throws Exception {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        RFuture<Void> unlocked = rFuture(null);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(unlocked);
+        RFuture<Boolean> extended = rFuture(true);
+        given(rLock.expireAsync(anyLong(), any()))
+                .willReturn(extended);
+        lockService.lock("123", 500L);
+        CompletableFuture<Void> second = lockService.lockAsync(Arrays.asList("123"), 500L);
+        CompletableFuture<Void> third = lockService.lockAsync(Arrays.asList("123"), 500L);
+        //when
+        lockService.unlock("123");
+        second.get(1, TimeUnit.SECONDS);
+        lockService.unlock("123");
+        //then
+        third.get(1, TimeUnit.SECONDS);
+        verify(rLock, times(2)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    @DisplayName("lease를 늘리지 못하면 redis lock을 놓고 다음 요청이 다시 얻는다.")
+    void releaseRemoteLockWhenLeaseExtensionFails() throws Exception {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        RFuture<Void> unlocked = rFuture(null);
+        RFuture<Boolean> notExtended = rFuture(false);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(unlocked);
+        given(rLock.expireAsync(anyLong(), any()))
+                .willReturn(notExtended);
+        lockService.lock("123", 500L);
+        CompletableFuture<Void> second = lockService.lockAsync(Arrays.asList("123"), 500L);
+        //when
+        lockService.unlock("123");
+        //then
+        second.get(1, TimeUnit.SECONDS);
+        verify(rLock, times(1)).unlockAsync(anyLong());
+        verify(rLock, times(2)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("near lock 대기 시간이 지나면 redis에 가지 않고 실패")
+    void localWaiterTimeout() {
+        //given
+        RFuture<Boolean> locked = rFuture(true);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(locked);
+        lockService.lock("123", 500L);
+        //when
+        CompletableFuture<Void> second = lockService.lockAsync(Arrays.asList("123"), 50L);
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> second.get(1, TimeUnit.SECONDS));
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        verify(rLock, times(1)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RFuture<T> rFuture(T value) {
+        RFuture<T> future = mock(RFuture.class);
+        given(future.toCompletableFuture()).willReturn(CompletableFuture.completedFuture(value));
+        return future;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationWriterTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private BalanceReservationService balanceReservationService;
+    @Mock
+    private TransactionRecordCache transactionRecordCache;
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private AccountReadModel accountReadModel;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReservationWriter reservationWriter;
+
+    private Account account;
+    private Account toAccount;
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        reservationWriter = new ReservationWriter(accountRepository, transactionRepository,
+                balanceReservationService, transactionRecordCache, ledgerService, accountReadModel, transactionManager,
+                meterRegistry, Runnable::run);
+        account = Account.builder().accountNumber("1000000000").balance(1000L).build();
+        account.setId(1L);
+        toAccount = Account.builder().accountNumber("2000000000").balance(0L).build();
+        toAccount.setId(2L);
+        transaction = Transaction.builder()
+                .account(account)
+                .amount(200L)
+                .transactionId("transactionId")
+                .build();
+    }
+
+    @Test
+    void writeAndSettle() {
+        // given
+        given(accountRepository.withdrawIfSufficient(1L, 200L)).willReturn(1);
+        // when
+        reservationWriter.submit(transaction, toAccount);
+        // then
+        verify(accountRepository, times(1)).deposit(2L, 200L);
+        verify(ledgerService, times(1)).transfer("transactionId", account, toAccount, 200L, true);
+        verify(transactionRepository, times(1)).save(transaction);
+        verify(balanceReservationService, times(1)).settle("1000000000");
+        verify(balanceReservationService, times(1)).creditAfterCommit("2000000000", 200L);
+        verify(balanceReservationService, never()).refund(anyString(), anyLong());
+        verify(transactionRecordCache, times(1)).putAfterCommit(anyList());
+        verify(accountReadModel, times(1)).reloadAfterCommit(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    void refundWhenDbBalanceIsShort() {
+        // given
+        given(accountRepository.withdrawIfSufficient(1L, 200L)).willReturn(0);
+        // when
+        reservationWriter.submit(transaction, toAccount);
+        // then
+        verify(accountRepository, never()).deposit(anyLong(), anyLong());
+        verify(ledgerService, never()).transfer(anyString(), any(), any(), anyLong(), anyBoolean());
+        verify(transactionRepository, never()).save(any());
+        verify(accountReadModel, never()).reloadAfterCommit(anyList());
+        verify(balanceReservationService, times(1)).refund("1000000000", 200L);
+        verify(balanceReservationService, times(1)).reseed("1000000000");
+        verify(balanceReservationService, never()).creditAfterCommit(anyString(), anyLong());
+        assertEquals(1.0, meterRegistry.get("account.reservation.write.failed").counter().count());
+    }
+
+    @Test
+    void refundWhenQueueIsFull() {
+        // given
+        ReservationWriter fullWriter = new ReservationWriter(accountRepository, transactionRepository,
+                balanceReservationService, transactionRecordCache, ledgerService, accountReadModel, transactionManager,
+                meterRegistry, command -> {
+                    throw new RejectedExecutionException();
+                });
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> fullWriter.submit(transaction, toAccount));
+        // then
+        assertEquals(ErrorCode.TRANSACTION_EXECUTOR_BUSY, exception.getErrorCode());
+        verify(balanceReservationService, times(1)).refund("1000000000", 200L);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeTransactionIdGeneratorTest {
+    @Test
+    void generateOrderedIds() {
+        // given
+        SnowflakeTransactionIdGenerator generator = new SnowflakeTransactionIdGenerator(7);
+        // when
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(generator.generate());
+        }
+        // then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+        assertEquals(SnowflakeTransactionIdGenerator.LENGTH, ids.get(0).length());
+    }
+
+    @Test
+    void generateUniqueIdsConcurrently() throws Exception {
+        // given
+        SnowflakeTransactionIdGenerator generator = new SnowflakeTransactionIdGenerator(1);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.generate());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        // then
+        assertEquals(400_000, ids.size());
+    }
+
+    @Test
+    void differentNodesDoNotCollide() {
+        // given
+        SnowflakeTransactionIdGenerator node1 = new SnowflakeTransactionIdGenerator(1);
+        SnowflakeTransactionIdGenerator node2 = new SnowflakeTransactionIdGenerator(2);
+        Set<String> ids = new HashSet<>();
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(node1.generate());
+            ids.add(node2.generate());
+        }
+        // then
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    void encodeKeepsNumericOrder() {
+        assertEquals("0000000000000", SnowflakeTransactionIdGenerator.encode(0L));
+        assertEquals("7ZZZZZZZZZZZZ", SnowflakeTransactionIdGenerator.encode(Long.MAX_VALUE));
+        assertTrue(SnowflakeTransactionIdGenerator.encode(31L)
+                .compareTo(SnowflakeTransactionIdGenerator.encode(32L)) < 0);
+    }
+
+    @Test
+    void rejectInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeTransactionIdGenerator(SnowflakeTransactionIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.TransactionHistoryItem;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionHistoryServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_000_000);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountNumberFilter accountNumberFilter;
+    @Mock
+    private AccountMetadataCache accountMetadataCache;
+
+    private TransactionHistoryService transactionHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        transactionHistoryService = new TransactionHistoryService(
+                transactionRepository, accountNumberFilter, accountMetadataCache, 100);
+        lenient().when(accountNumberFilter.mightContain(any())).thenReturn(true);
+        lenient().when(accountMetadataCache.get("1000000000"))
+                .thenReturn(Optional.of(AccountMetadata.builder().id(1L).accountNumber("1000000000").build()));
+    }
+
+    @Test
+    void firstPage() {
+        // given
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        given(transactionRepository.findHistory(eq(1L), eq(USE), isNull(), captor.capture()))
+                .willReturn(items(3, 10L));
+        // when
+        TransactionHistory history = transactionHistoryService.getTransactionHistory(
+                "1000000000", USE, null, null, 2);
+        // then
+        assertEquals(3, captor.getValue().getPageSize());
+        assertEquals(2, history.getTransactions().size());
+        assertEquals(9L, history.getTransactions().get(1).getId());
+        TransactionHistoryService.Cursor cursor = TransactionHistoryService.decode(history.getNextCursor());
+        assertEquals(NOW.minusSeconds(1), cursor.getTransactedAt());
+        assertEquals(9L, cursor.getId());
+    }
+
+    @Test
+    void nextPageFromCursor() {
+        // given
+        String cursor = TransactionHistoryService.encode(TransactionHistoryItem.builder()
+                .id(9L)
+                .transactedAt(NOW)
+                .build());
+        given(transactionRepository.findHistoryBefore(eq(1L), isNull(), isNull(), eq(NOW), eq(9L), any()))
+                .willReturn(items(1, 8L));
+        // when
+        TransactionHistory history = transactionHistoryService.getTransactionHistory(
+                "1000000000", null, null, cursor, 2);
+        // then
+        assertEquals(1, history.getTransactions().size());
+        assertNull(history.getNextCursor());
+        verify(transactionRepository, never()).findHistory(any(), any(), any(), any());
+    }
+
+    @Test
+    void invalidCursor() {
+        // given
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactionHistory(
+                        "1000000000", null, null, "not-a-cursor", 20));
+        // then
+        assertEquals(ErrorCode.INVALID_REQUEST, accountException.getErrorCode());
+    }
+
+    @Test
+    void pageSizeTooLarge() {
+        // given
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactionHistory(
+                        "1000000000", null, null, null, 101));
+        // then
+        assertEquals(ErrorCode.INVALID_REQUEST, accountException.getErrorCode());
+    }
+
+    @Test
+    void accountNotFound() {
+        // given
+        given(accountMetadataCache.get("9999999999")).willReturn(Optional.empty());
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactionHistory(
+                        "9999999999", null, null, null, 20));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, accountException.getErrorCode());
+    }
+
+    // 최근 거래부터 count개 (id, transactedAt 모두 하나씩 줄어듦)
+    private static List<TransactionHistoryItem> items(int count, long firstId) {
+        List<TransactionHistoryItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(TransactionHistoryItem.builder()
+                    .id(firstId - i)
+                    .transactionId("transaction" + (firstId - i))
+                    .transactionType(USE)
+                    .transactionResultType(S)
+                    .amount(1000L)
+                    .transactedAt(NOW.minusSeconds(i))
+                    .build());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.LedgerPostingRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.JournalFsyncPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.SEND;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionJournalServiceTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void drainCommittedTransaction() throws IOException {
+        // given
+        TransactionJournalService service = open(100);
+        // when
+        List<TransactionSynchronization> synchronizations = record(service, transaction("tx-1"));
+        synchronizations.forEach(s -> s.beforeCommit(false));
+        assertFalse(service.findPending("tx-1").isPresent());
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertTrue(service.findPending("tx-1").isPresent());
+        service.drain();
+        // then
+        assertEquals(List.of("tx-1"), savedTransactionIds(1).get(0));
+        assertFalse(service.findPending("tx-1").isPresent());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void skipRolledBackTransaction() throws IOException {
+        // given
+        TransactionJournalService service = open(100);
+        List<TransactionSynchronization> synchronizations = record(service, transaction("tx-1"));
+        // when
+        synchronizations.forEach(s -> s.beforeCommit(false));
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        service.drain();
+        // then
+        verify(transactionRepository, never()).saveAll(anyCollection());
+        assertFalse(service.findPending("tx-1").isPresent());
+    }
+
+    @Test
+    @DisplayName("커밋 여부를 모르는 거래 앞에서 멈추고, 결과가 나오면 순서대로 넣는다.")
+    void stopAtUndecidedTransaction() throws IOException {
+        // given
+        TransactionJournalService service = open(100);
+        List<TransactionSynchronization> first = record(service, transaction("tx-1"));
+        first.forEach(s -> s.beforeCommit(false));
+        List<TransactionSynchronization> second = record(service, transaction("tx-2"));
+        second.forEach(s -> s.beforeCommit(false));
+        second.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        // when
+        service.drain();
+        verify(transactionRepository, never()).saveAll(anyCollection());
+        first.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        service.drain();
+        // then
+        assertEquals(List.of("tx-1", "tx-2"), savedTransactionIds(1).get(0));
+    }
+
+    @Test
+    @DisplayName("재시작: 표시 없는 거래는 원장으로 확인하고, 이미 넣은 거래는 거른다.")
+    void resolveInDoubtAndDedupeOnReplay() throws IOException {
+        // given
+        try (TransactionJournal journal = TransactionJournal.open(directory, 1 << 20)) {
+            journal.append(transaction("tx-1"));
+            journal.appendMarker("tx-1", true);
+            // DB 커밋 중에 종료: tx-2는 커밋됨, tx-3은 롤백됨
+            journal.append(transaction("tx-2"));
+            journal.append(transaction("tx-3"));
+        }
+        given(ledgerPostingRepository.findExistingTransactionIds(anyCollection()))
+                .willReturn(Collections.singletonList("tx-2"));
+        // checkpoint를 남기기 전에 tx-1은 이미 들어갔다.
+        given(transactionRepository.findExistingTransactionIds(anyCollection()))
+                .willReturn(Collections.singletonList("tx-1"));
+        TransactionJournalService service = open(100);
+        assertTrue(service.findPending("tx-1").isPresent());
+        assertFalse(service.findPending("tx-2").isPresent());
+        // when
+        service.drain();
+        // then
+        assertEquals(List.of("tx-2"), savedTransactionIds(1).get(0));
+        verify(ledgerPostingRepository, times(1)).findExistingTransactionIds(anyCollection());
+        assertFalse(service.findPending("tx-3").isPresent());
+    }
+
+    @Test
+    void saveDirectlyWhenPendingIsFull() throws IOException {
+        // given
+        TransactionJournalService service = open(1);
+        List<TransactionSynchronization> first = record(service, transaction("tx-1"));
+        first.forEach(s -> s.beforeCommit(false));
+        first.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        // when
+        List<TransactionSynchronization> second = record(service, transaction("tx-2"));
+        second.forEach(s -> s.beforeCommit(false));
+        second.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        // then
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals("tx-2", captor.getValue().getTransactionId());
+        assertFalse(service.findPending("tx-2").isPresent());
+        assertEquals(1.0, meterRegistry.get("account.journal.pending.full").counter().count());
+    }
+
+    private TransactionJournalService open(int maxPending) throws IOException {
+        TransactionJournalService service = new TransactionJournalService(transactionRepository,
+                accountRepository, ledgerPostingRepository, transactionManager, meterRegistry,
+                true, directory.toString(), 1 << 20, JournalFsyncPolicy.NONE, 10L, 100, maxPending);
+        service.open();
+        return service;
+    }
+
+    // 요청 트랜잭션 안에서 기록하고, 등록된 synchronization을 돌려준다.
+    private static List<TransactionSynchronization> record(TransactionJournalService service,
+                                                           Transaction transaction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        service.record(transaction);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return synchronizations;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<String>> savedTransactionIds(int times) {
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, times(times)).saveAll(captor.capture());
+        return captor.getAllValues().stream()
+                .map(transactions -> transactions.stream()
+                        .map(Transaction::getTransactionId)
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    private static Transaction transaction(String transactionId) {
+        Account account = Account.builder().accountNumber("1000000000").build();
+        account.setId(1L);
+        return Transaction.builder()
+                .transactionType(SEND)
+                .transactionResultType(S)
+                .account(account)
+                .amount(200L)
+                .toAccount("2000000000")
+                .balanceSnapshot(800L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.account.service.TransactionJournal.RecordType.ABORT;
+import static com.example.account.service.TransactionJournal.RecordType.COMMIT;
+import static com.example.account.service.TransactionJournal.RecordType.PREPARE;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.SEND;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndRead() throws IOException {
+        // given
+        LocalDateTime transactedAt = LocalDateTime.of(2024, 1, 2, 3, 4, 5, 678_901_234);
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            // when
+            journal.append(transaction("tx-1", transactedAt));
+            journal.append(transaction("tx-2", transactedAt));
+            List<TransactionJournal.Record> records = journal.read(0L, 10);
+            // then
+            assertEquals(2, records.size());
+            Transaction first = records.get(0).getTransaction();
+            assertEquals("tx-1", first.getTransactionId());
+            assertEquals(SEND, first.getTransactionType());
+            assertEquals(S, first.getTransactionResultType());
+            assertEquals(1L, first.getAccount().getId());
+            assertEquals("1000000000", first.getAccount().getAccountNumber());
+            assertEquals(200L, first.getAmount());
+            assertEquals("2000000000", first.getToAccount());
+            assertNull(first.getTransactionMessage());
+            assertEquals(800L, first.getBalanceSnapshot());
+            assertEquals(transactedAt, first.getTransactedAt());
+            assertEquals(records.get(0).getNextOffset(), records.get(1).getOffset());
+        }
+    }
+
+    @Test
+    void replayFromCheckpointAfterReopen() throws IOException {
+        // given
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            journal.append(transaction("tx-1", LocalDateTime.now()));
+            journal.append(transaction("tx-2", LocalDateTime.now()));
+            journal.append(transaction("tx-3", LocalDateTime.now()));
+            journal.markDrained(journal.read(0L, 1).get(0).getNextOffset());
+        }
+        // when
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            List<TransactionJournal.Record> records = journal.read(journal.getDrainedOffset(), 10);
+            journal.append(transaction("tx-4", LocalDateTime.now()));
+            // then
+            assertEquals(List.of("tx-2", "tx-3"), transactionIds(records));
+            assertEquals(List.of("tx-2", "tx-3", "tx-4"),
+                    transactionIds(journal.read(journal.getDrainedOffset(), 10)));
+        }
+    }
+
+    @Test
+    void rollAndDeleteDrainedSegments() throws IOException {
+        // given
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            for (int i = 0; i < 50; i++) {
+                journal.append(transaction("tx-" + i, LocalDateTime.now()));
+            }
+            assertTrue(segmentCount() > 1);
+            // when
+            List<TransactionJournal.Record> records = journal.read(0L, 100);
+            journal.markDrained(records.get(records.size() - 1).getNextOffset());
+            // then
+            assertEquals(50, records.size());
+            assertEquals("tx-49", records.get(49).getTransaction().getTransactionId());
+            assertEquals(1, segmentCount());
+        }
+    }
+
+    @Test
+    void discardTornRecordOnReopen() throws IOException {
+        // given
+        long tornOffset;
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            tornOffset = journal.append(transaction("tx-1", LocalDateTime.now()));
+            journal.append(transaction("tx-2", LocalDateTime.now()));
+        }
+        // 두 번째 레코드의 crc를 깨뜨린다.
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 0), tornOffset + 4);
+        }
+        // when
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            journal.append(transaction("tx-3", LocalDateTime.now()));
+            // then
+            assertEquals(List.of("tx-1", "tx-3"), transactionIds(journal.read(0L, 10)));
+        }
+    }
+
+    @Test
+    void readCommitAndAbortMarkers() throws IOException {
+        // given
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            journal.append(transaction("tx-1", LocalDateTime.now()));
+            journal.append(transaction("tx-2", LocalDateTime.now()));
+            journal.appendMarker("tx-2", false);
+            journal.appendMarker("tx-1", true);
+            // when
+            List<TransactionJournal.Record> records = journal.read(0L, 10);
+            // then
+            assertEquals(List.of(PREPARE, PREPARE, ABORT, COMMIT), records.stream()
+                    .map(TransactionJournal.Record::getType)
+                    .collect(Collectors.toList()));
+            assertEquals("tx-2", records.get(2).getTransactionId());
+            assertNull(records.get(2).getTransaction());
+            assertEquals("tx-1", records.get(3).getTransactionId());
+        }
+    }
+
+    @Test
+    void trackForcedOffset() throws IOException {
+        // given
+        try (TransactionJournal journal = TransactionJournal.open(directory, SEGMENT_SIZE)) {
+            long offset = journal.append(transaction("tx-1", LocalDateTime.now()));
+            assertTrue(journal.getForcedOffset() < offset);
+            // when
+            journal.force();
+            // then
+            assertEquals(offset, journal.getForcedOffset());
+        }
+    }
+
+    private static Transaction transaction(String transactionId, LocalDateTime transactedAt) {
+        Account account = Account.builder().accountNumber("1000000000").build();
+        account.setId(1L);
+        return Transaction.builder()
+                .transactionType(SEND)
+                .transactionResultType(S)
+                .account(account)
+                .amount(200L)
+                .toAccount("2000000000")
+                .balanceSnapshot(800L)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    private static List<String> transactionIds(List<TransactionJournal.Record> records) {
+        return records.stream()
+                .map(record -> record.getTransaction().getTransactionId())
+                .collect(Collectors.toList());
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.QueryTransactionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionRecordCacheTest {
+    @Mock
+    private ObjectProvider<RedissonClient> redissonClientProvider;
+    @Mock
+    private RedissonClient redissonClient;
+    @Mock
+    private RMapCache<String, String> redisCache;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void putAfterCommit() {
+        // given
+        TransactionRecordCache cache = localCache();
+        TransactionSynchronizationManager.initSynchronization();
+        // when
+        cache.putAfterCommit(Collections.singletonList(transaction()));
+        Optional<QueryTransactionResponse> beforeCommit = cache.get("transactionId");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        // then
+        assertFalse(beforeCommit.isPresent());
+        QueryTransactionResponse response = cache.get("transactionId").get();
+        assertEquals("1000000000", response.getAccountNumber());
+        assertEquals(USE, response.getTransactionType());
+        assertEquals(S, response.getTransactionResultType());
+        assertEquals(200L, response.getAmount());
+    }
+
+    @Test
+    void skipFailedTransactions() {
+        // given
+        TransactionRecordCache cache = localCache();
+        Transaction failed = transaction();
+        failed.setTransactionResultType(F);
+        // when
+        cache.putAfterCommit(Collections.singletonList(failed));
+        // then
+        assertFalse(cache.get("transactionId").isPresent());
+    }
+
+    @Test
+    void changingReturnedResponseDoesNotChangeCache() {
+        // given
+        TransactionRecordCache cache = localCache();
+        cache.putAfterCommit(Collections.singletonList(transaction()));
+        // when
+        cache.get("transactionId").get().setAmount(999L);
+        // then
+        assertEquals(200L, cache.get("transactionId").get().getAmount());
+    }
+
+    @Test
+    void readFromRedisOnLocalMiss() throws Exception {
+        // given
+        given(redissonClientProvider.getObject()).willReturn(redissonClient);
+        doReturn(redisCache).when(redissonClient).getMapCache(anyString(), any(Codec.class));
+        TransactionRecordCache cache = new TransactionRecordCache(redissonClientProvider, objectMapper,
+                meterRegistry, 100, true, 1000, 60_000L);
+        QueryTransactionResponse stored = QueryTransactionResponse.builder()
+                .accountNumber("1000000000")
+                .transactionId("transactionId")
+                .amount(200L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+        given(redisCache.get("transactionId")).willReturn(objectMapper.writeValueAsString(stored));
+        // when
+        cache.get("transactionId");
+        QueryTransactionResponse response = cache.get("transactionId").get();
+        // then
+        assertEquals("1000000000", response.getAccountNumber());
+        assertEquals(200L, response.getAmount());
+        // 두 번째 조회는 노드 안 캐시에서
+        verify(redisCache, times(1)).get("transactionId");
+    }
+
+    private TransactionRecordCache localCache() {
+        return new TransactionRecordCache(redissonClientProvider, objectMapper, meterRegistry,
+                100, false, 1000, 60_000L);
+    }
+
+    private static Transaction transaction() {
+        return Transaction.builder()
+                .account(Account.builder().accountNumber("1000000000").build())
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .amount(200L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
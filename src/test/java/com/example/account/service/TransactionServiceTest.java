@@ -3,13 +3,20 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.QueryTransactionResponse;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRespository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
+import com.example.account.type.BatchMode;
+import com.example.account.type.Bank;
+import com.example.account.type.ConcurrencyMode;
 import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +26,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static com.example.account.type.AccountStatus.IN_USE;
@@ -26,6 +36,8 @@ import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
 import static com.example.account.type.TransactionType.USE;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,10 +55,36 @@ class TransactionServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRespository accountUserRespository;
+    @Mock
+    private ConcurrencyModeResolver concurrencyModeResolver;
+    @Mock
+    private BalanceReservationService balanceReservationService;
+    @Mock
+    private ReservationWriter reservationWriter;
+    @Mock
+    private TransactionJournalService transactionJournalService;
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+    @Mock
+    private AccountNumberFilter accountNumberFilter;
+    @Mock
+    private AccountMetadataCache accountMetadataCache;
+    @Mock
+    private TransactionRecordCache transactionRecordCache;
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private AccountReadModel accountReadModel;
 
     @InjectMocks // 위에서 만든 mock을 주입시켜줌.
     private TransactionService transactionService;
 
+    @BeforeEach
+    void setUp() {
+        // 필터는 기본으로 통과 (있을 수도 있음)
+        lenient().when(accountNumberFilter.mightContain(any())).thenReturn(true);
+    }
+
     @Test
     void successUseBalance(){
         // given
@@ -214,43 +252,196 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("실패 트랜잭션 저장 성공")
-    void saveFailUseTransaction(){
+    @DisplayName("RESERVATION 모드 - redis에서 차감하고 DB 반영은 writer에게 넘긴다.")
+    void useBalance_reservation(){
         // given
         AccountUser user = AccountUser.builder()
                 .name("Pobi")
                 .build();
         user.setId(12L);
+        given(accountUserRespository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000000").build();
+        account.setId(1L);
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .bank(Bank.KB)
+                .balance(0L)
+                .accountNumber("2000000000").build();
+        toAccount.setId(2L);
+        given(accountMetadataCache.get("1000000000"))
+                .willReturn(Optional.of(metadata(account)));
+        given(accountMetadataCache.get("2000000000"))
+                .willReturn(Optional.of(metadata(toAccount)));
+        given(accountRepository.findById(1L))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findById(2L))
+                .willReturn(Optional.of(toAccount));
+        given(balanceReservationService.isEnabled()).willReturn(true);
+        given(balanceReservationService.reserve("1000000000", USE_AMOUNT))
+                .willReturn(10000L - USE_AMOUNT);
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        // when
+        TransactionDto transactionDto = transactionService.useBalance(1L,
+                "1000000000", USE_AMOUNT, "2000000000", "KB", "message");
+        // then
+        verify(reservationWriter, times(1)).submit(captor.capture(), eq(toAccount));
+        verify(transactionRepository, never()).save(any());
+        verify(ledgerService, never()).transfer(anyString(), any(), any(), anyLong(), anyBoolean());
+        assertEquals(10000L, account.getBalance());
+        assertEquals(0L, toAccount.getBalance());
+        assertEquals(10000L - USE_AMOUNT, transactionDto.getBalanceSnapshot());
+        assertEquals(captor.getValue().getTransactionId(), transactionDto.getTransactionId());
+    }
 
+    @Test
+    @DisplayName("RESERVATION 모드 - redis 잔액이 부족하면 실패")
+    void useBalance_reservationExceedAmount(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(12L);
+        given(accountUserRespository.findById(anyLong()))
+                .willReturn(Optional.of(user));
         Account account = Account.builder()
                 .accountUser(user)
                 .accountStatus(IN_USE)
-                .balance(1000L)
-                .accountNumber("100000012").build();
+                .bank(Bank.KB)
+                .balance(100L)
+                .accountNumber("1000000000").build();
         account.setId(1L);
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(account)));
+        given(accountRepository.findById(1L))
                 .willReturn(Optional.of(account));
+        given(balanceReservationService.isEnabled()).willReturn(true);
+        given(balanceReservationService.reserve(anyString(), anyLong()))
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                ()-> transactionService.useBalance(1L,
+                        "1000000000", USE_AMOUNT, "2000000000", "KB", "message"));
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, accountException.getErrorCode());
+        verify(reservationWriter, never()).submit(any(), any());
+    }
 
+    @Test
+    @DisplayName("deferred-credit - 받는 계좌 row는 바꾸지 않고 원장에만 입금")
+    void useBalance_deferredCredit(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(12L);
+        given(accountUserRespository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .bank(Bank.KB)
+                .balance(10000L)
+                .accountNumber("1000000000").build();
+        account.setId(1L);
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .bank(Bank.KB)
+                .balance(0L)
+                .accountNumber("2000000000").build();
+        toAccount.setId(2L);
+        given(accountMetadataCache.get("1000000000"))
+                .willReturn(Optional.of(metadata(account)));
+        given(accountMetadataCache.get("2000000000"))
+                .willReturn(Optional.of(metadata(toAccount)));
+        given(accountRepository.findById(1L))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findById(2L))
+                .willReturn(Optional.of(toAccount));
+        given(ledgerService.isDeferredCredit()).willReturn(true);
+        given(transactionIdGenerator.generate()).willReturn("transactionId");
         given(transactionRepository.save(any()))
-                .willReturn(Transaction.builder()
-                        .account(account)
-                        .transactionType(USE)
-                        .transactionResultType(S)
-                        .transactionId("transactionId")
-                        .transactedAt(LocalDateTime.now())
-                        .amount(1000L)
-                        .balanceSnapshot(9000L)
-                        .build());
-        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+                .willAnswer(invocation -> invocation.getArgument(0));
         // when
-        transactionService.saveFaileUseTransaction("1000000000", USE_AMOUNT);
+        TransactionDto transactionDto = transactionService.useBalance(1L,
+                "1000000000", USE_AMOUNT, "2000000000", "KB", "message");
+        // then
+        assertEquals(10000L - USE_AMOUNT, account.getBalance());
+        assertEquals(0L, toAccount.getBalance());
+        assertEquals("transactionId", transactionDto.getTransactionId());
+        verify(ledgerService, times(1)).transfer("transactionId", account, toAccount, USE_AMOUNT, false);
+        verify(accountReadModel, times(1)).updateAfterCommit(Arrays.asList(account, toAccount));
+    }
 
+    @Test
+    @DisplayName("일괄 이체 ALL_OR_NOTHING - 하나라도 실패하면 잔액은 그대로")
+    void useBalanceBatch_allOrNothing(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(1L);
+        Account from = Account.builder().accountUser(user).bank(Bank.KB)
+                .balance(1000L).accountNumber("1000000000").build();
+        Account to = Account.builder().accountUser(user).bank(Bank.KB)
+                .balance(0L).accountNumber("2000000000").build();
+        given(accountUserRespository.findAllById(any()))
+                .willReturn(Arrays.asList(user));
+        given(accountRepository.findByAccountNumberIn(any()))
+                .willReturn(Arrays.asList(from, to));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        // when
+        List<TransactionDto> results = transactionService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 600L, "2000000000", "KB", ""),
+                new UseBalance.Request(1L, "1000000000", 600L, "2000000000", "KB", "")),
+                BatchMode.ALL_OR_NOTHING);
         // then
-        verify(transactionRepository,times(1)).save(captor.capture());
-        assertEquals(USE_AMOUNT,captor.getValue().getAmount());
-        assertEquals(1000L,captor.getValue().getBalanceSnapshot());
-        assertEquals(F, captor.getValue().getTransactionResultType());
+        assertEquals(1000L, from.getBalance());
+        assertEquals(0L, to.getBalance());
+        assertEquals(ErrorCode.BATCH_ROLLED_BACK, results.get(0).getErrorCode());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(F, captor.getValue().get(0).getTransactionResultType());
+    }
 
+    @Test
+    @DisplayName("일괄 이체 BEST_EFFORT - 성공한 항목만 반영")
+    void useBalanceBatch_bestEffort(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(1L);
+        Account from = Account.builder().accountUser(user).bank(Bank.KB)
+                .balance(1000L).accountNumber("1000000000").build();
+        Account to = Account.builder().accountUser(user).bank(Bank.KB)
+                .balance(0L).accountNumber("2000000000").build();
+        given(accountUserRespository.findAllById(any()))
+                .willReturn(Arrays.asList(user));
+        given(accountRepository.findByAccountNumberIn(any()))
+                .willReturn(Arrays.asList(from, to));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        // when
+        List<TransactionDto> results = transactionService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 600L, "2000000000", "KB", ""),
+                new UseBalance.Request(1L, "1000000000", 600L, "2000000000", "KB", ""),
+                new UseBalance.Request(1L, "2000000000", 100L, "3000000000", "KB", "")),
+                BatchMode.BEST_EFFORT);
+        // then
+        assertEquals(400L, from.getBalance());
+        assertEquals(600L, to.getBalance());
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        assertEquals(ErrorCode.USER_NOT_FOUND, results.get(2).getErrorCode());
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(3, captor.getValue().size());
     }
 
     @Test
@@ -277,7 +468,9 @@ class TransactionServiceTest {
                 .build();
         given(transactionRepository.findByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(account)));
+        given(accountRepository.findById(1L))
                 .willReturn(Optional.of(account));
         given(transactionRepository.save(any()))
                 .willReturn(Transaction.builder()
@@ -303,7 +496,103 @@ class TransactionServiceTest {
         assertEquals(CANCEL, transactionDto.getTransactionType());
         assertEquals(10000L, transactionDto.getBalanceSnapshot());
         assertEquals(CANCEL_AMOUNT, transactionDto.getAmount());
+        verify(transactionRecordCache, times(1)).putAfterCommit(anyList());
+        verify(ledgerService, times(1)).refund("transactionForCancel", account, CANCEL_AMOUNT);
+
+    }
+
+    @Test
+    @DisplayName("DB_LOCK 모드 - 취소할 계좌를 FOR UPDATE로 조회")
+    void cancelBalance_dbLock(){
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi")
+                .build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("100000012").build();
+        account.setId(1L);
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(9000L)
+                .build();
+        given(concurrencyModeResolver.resolve(CANCEL))
+                .willReturn(ConcurrencyMode.DB_LOCK);
+        given(transactionRepository.findByTransactionId(anyString()))
+                .willReturn(Optional.of(transaction));
+        given(accountRepository.findByAccountNumberForUpdate(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        // when
+        transactionService.cancelBalance("transactionId", "1000000000", CANCEL_AMOUNT);
+        // then
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        assertEquals(10000L + CANCEL_AMOUNT, account.getBalance());
+        verify(accountReadModel, times(1)).updateAfterCommit(Collections.singletonList(account));
+    }
 
+    @Test
+    @DisplayName("journal 사용 - 아직 DB에 없는 거래 취소, 기록은 journal에 남김")
+    void cancelBalance_journal(){
+        // given
+        Account account = Account.builder()
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("100000012").build();
+        account.setId(1L);
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(9000L)
+                .build();
+        given(transactionJournalService.isEnabled()).willReturn(true);
+        given(transactionJournalService.findPending("transactionId"))
+                .willReturn(Optional.of(transaction));
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(account)));
+        given(accountRepository.findById(1L))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        // when
+        TransactionDto transactionDto = transactionService.cancelBalance("transactionId",
+                "1000000000", CANCEL_AMOUNT);
+        // then
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+        verify(transactionRepository, never()).save(any());
+        verify(transactionJournalService, times(1)).record(captor.capture());
+        assertEquals(CANCEL, captor.getValue().getTransactionType());
+        assertEquals(captor.getValue().getTransactionId(), transactionDto.getTransactionId());
+    }
+
+    @Test
+    @DisplayName("필터에 없는 계좌 - DB 조회 없이 잔액 사용 취소 실패")
+    void cancelTransaction_filteredAccountNumber(){
+        // given
+        given(transactionRepository.findByTransactionId(anyString()))
+                .willReturn(Optional.of(
+                        Transaction.builder().build()));
+        given(accountNumberFilter.mightContain("1000000000"))
+                .willReturn(false);
+
+        // when
+        AccountException accountException = assertThrows(AccountException.class,
+                ()-> transactionService.cancelBalance("transactionForCancel","1000000000",CANCEL_AMOUNT));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,accountException.getErrorCode());
+        verify(accountMetadataCache, never()).get(anyString());
     }
 
     @Test
@@ -314,7 +603,7 @@ class TransactionServiceTest {
         given(transactionRepository.findByTransactionId(anyString()))
                 .willReturn(Optional.of(
                         Transaction.builder().build()));
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountMetadataCache.get(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -374,8 +663,8 @@ class TransactionServiceTest {
 
         given(transactionRepository.findByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.of(accountNotUse));
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(accountNotUse)));
 
         // when
         AccountException accountException = assertThrows(AccountException.class,
@@ -411,8 +700,8 @@ class TransactionServiceTest {
 
         given(transactionRepository.findByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.of(account));
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(account)));
 
         // when
         AccountException accountException = assertThrows(AccountException.class,
@@ -448,8 +737,8 @@ class TransactionServiceTest {
 
         given(transactionRepository.findByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.of(account));
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(metadata(account)));
 
         // when
         AccountException accountException = assertThrows(AccountException.class,
@@ -462,42 +751,49 @@ class TransactionServiceTest {
     @Test
     void successQueryTransaction(){
         // given
-        AccountUser user = AccountUser.builder()
-                .name("Pobi")
-                .build();
-        user.setId(12L);
-        Account account = Account.builder()
-                .accountUser(user)
-                .accountStatus(IN_USE)
-                .balance(10000L)
-                .accountNumber("100000012").build();
-        account.setId(1L);
-        Transaction transaction = Transaction.builder()
-                .account(account)
-                .transactionType(USE)
-                .transactionResultType(S)
+        given(transactionRepository.findQueryResponseByTransactionId(anyString()))
+                .willReturn(Optional.of(QueryTransactionResponse.builder()
+                        .accountNumber("100000012")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .transactedAt(LocalDateTime.now().minusYears(1).minusDays(1))
+                        .amount(CANCEL_AMOUNT)
+                        .build()));
+        // when
+        QueryTransactionResponse response = transactionService.queryTransaction("trxId");
+        // then
+        assertEquals("100000012",response.getAccountNumber());
+        assertEquals(USE,response.getTransactionType());
+        assertEquals(S,response.getTransactionResultType());
+        assertEquals(CANCEL_AMOUNT,response.getAmount());
+        assertEquals("transactionId",response.getTransactionId());
+        verify(transactionRecordCache, times(1)).put(response);
+    }
+
+    @Test
+    @DisplayName("캐시에 있는 거래 - DB 조회 없이 응답")
+    void queryTransaction_cached(){
+        // given
+        QueryTransactionResponse cached = QueryTransactionResponse.builder()
                 .transactionId("transactionId")
-                .transactedAt(LocalDateTime.now().minusYears(1).minusDays(1))
                 .amount(CANCEL_AMOUNT)
-                .balanceSnapshot(9000L)
                 .build();
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRecordCache.get("transactionId"))
+                .willReturn(Optional.of(cached));
         // when
-        TransactionDto transactionDto = transactionService.queryTransaction("trxId");
+        QueryTransactionResponse response = transactionService.queryTransaction("transactionId");
         // then
-        assertEquals(USE,transactionDto.getTransactionType());
-        assertEquals(S,transactionDto.getTransactionResultType());
-        assertEquals(CANCEL_AMOUNT,transactionDto.getAmount());
-        assertEquals("transactionId",transactionDto.getTransactionId());
+        assertSame(cached, response);
+        verify(transactionRepository, never()).findQueryResponseByTransactionId(anyString());
+        verify(transactionJournalService, never()).findPending(anyString());
     }
 
     @Test
-    @DisplayName("원거래 없음- 거래 조회 실패")
     void queryTransaction_TransactionNotFound(){
         // given
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findQueryResponseByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -508,4 +804,11 @@ class TransactionServiceTest {
 
     }
 
-}
\ No newline at end of file
+    private static AccountMetadata metadata(Account account) {
+        return AccountMetadata.builder()
+                .id(account.getId())
+                .accountNumber(account.getAccountNumber())
+                .bank(account.getBank())
+                .build();
+    }
+}